@@ -23,6 +23,7 @@ dependencies {
     implementation("org.apache.maven.resolver:maven-resolver-transport-file:1.4.2")
     implementation("org.apache.maven.resolver:maven-resolver-connector-basic:1.4.2")
     implementation("commons-codec:commons-codec:1.14")
+    implementation("com.google.code.gson:gson:2.8.9")
 
     // test deps
     testImplementation("org.codehaus.groovy:groovy:2.5.14")
@@ -35,6 +36,33 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// JMH benchmarks for the plugin's hot paths: ./gradlew jmh, or ./gradlew jmh -PjmhArgs="MavenClient -f 1"
+val jmh by sourceSets.creating {
+    compileClasspath += sourceSets.test.get().output + sourceSets.test.get().compileClasspath
+    runtimeClasspath += output + compileClasspath + sourceSets.test.get().runtimeClasspath
+}
+
+val jmhVersion = "1.36"
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    if (JavaVersion.current().isJava9Compatible) {
+        // ProjectBuilder defines classes in the JDK's class loaders; forked benchmark JVMs inherit this
+        jvmArgs("--add-opens", "java.base/java.lang=ALL-UNNAMED")
+    }
+    val jmhArgs: String? by project
+    args(jmhArgs?.split(" ")?.filter { it.isNotEmpty() } ?: listOf("-rf", "json", "-rff", "$buildDir/reports/jmh/results.json"))
+    doFirst { file("$buildDir/reports/jmh").mkdirs() }
+}
+
 group = "com.newrelic.agent.java"
 
 // -Prelease=true will render a non-snapshot version
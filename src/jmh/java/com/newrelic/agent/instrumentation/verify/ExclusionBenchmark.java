@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The exclusion check {@link ProjectTaskFactory} makes for every version it is about to register a task for,
+ * against a module with many excluded versions, a range and a few regexes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExclusionBenchmark {
+    @Param({ "500" })
+    int exclusionCount;
+
+    @Param({ "1000" })
+    int versionCount;
+
+    private ProjectTaskFactory factory;
+    private List<String> versions;
+
+    @Setup
+    public void createFactory() {
+        ExclusionMatcher exclusions = new ExclusionMatcher();
+        for (int i = 0; i < exclusionCount; i++) {
+            exclusions.exclude("com.example:library:" + i + ".0");
+        }
+        exclusions.exclude("com.example:library:[" + exclusionCount * 3 / 2 + ",)");
+        exclusions.excludeRegex(".*:.*:.*-SNAPSHOT");
+        exclusions.excludeRegex("com.example:library:.*-(alpha|beta|rc).*");
+
+        Project project = ProjectBuilder.builder().build();
+        factory = new ProjectTaskFactory(project, exclusions, LoggerFactory.getLogger(ExclusionBenchmark.class), project.getBuildDir(), new MavenClient());
+
+        versions = new ArrayList<>();
+        for (int i = 0; i < versionCount; i++) {
+            versions.add("com.example:library:" + (i * 7 % (exclusionCount * 2)) + ".0");
+        }
+    }
+
+    @Benchmark
+    public int matchVersions() {
+        int excluded = 0;
+        for (String version : versions) {
+            if (factory.isExcluded(version)) {
+                excluded++;
+            }
+        }
+        return excluded;
+    }
+}
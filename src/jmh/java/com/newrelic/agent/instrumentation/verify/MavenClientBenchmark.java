@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range lookups against a {@code file://} repository that publishes thousands of versions, through the
+ * repository system and through the metadata cache, with a fresh client for every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenClientBenchmark {
+    @Param({ "5000" })
+    int versionCount;
+
+    private Path repositoryDir;
+    private List<RemoteRepository> repositories;
+    private MavenClient client;
+    private MavenClient cachedClient;
+
+    @Setup(Level.Trial)
+    public void createRepository() throws IOException {
+        repositoryDir = Files.createTempDirectory("jmh-repository");
+        StringBuilder metadata = new StringBuilder("<metadata><groupId>foo</groupId><artifactId>bar</artifactId><versioning><versions>");
+        for (int i = 0; i < versionCount; i++) {
+            metadata.append("<version>").append(i / 100).append('.').append(i % 100).append(".0</version>");
+        }
+        metadata.append("</versions></versioning></metadata>");
+        Path metadataDir = Files.createDirectories(repositoryDir.resolve("foo/bar"));
+        Files.write(metadataDir.resolve("maven-metadata.xml"), metadata.toString().getBytes(StandardCharsets.UTF_8));
+
+        repositories = Collections.singletonList(
+                new RemoteRepository.Builder("0", "default", repositoryDir.toUri().toString()).build());
+    }
+
+    @Setup(Level.Invocation)
+    public void createClients() {
+        client = new MavenClient();
+        cachedClient = new MavenClient();
+        cachedClient.setMetadataCache(new MetadataCache(repositoryDir.resolve("cache").toFile(), Duration.ofHours(1), false));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClients() throws IOException {
+        client.close();
+        cachedClient.close();
+    }
+
+    @Benchmark
+    public Collection<String> repositorySystem() {
+        return client.resolveAvailableVersions("foo:bar:[10.0,40.0)", repositories);
+    }
+
+    @Benchmark
+    public Collection<String> metadataCache() {
+        return cachedClient.resolveAvailableVersions("foo:bar:[10.0,40.0)", repositories);
+    }
+}
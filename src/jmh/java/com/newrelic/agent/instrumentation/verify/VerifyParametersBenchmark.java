@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the parameters of a work item, as Gradle does to isolate them for the worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifyParametersBenchmark {
+    @Param({ "10", "100" })
+    int classpathSize;
+
+    private VerifyParameters parameters;
+    private byte[] serialized;
+
+    @Setup
+    public void createParameters() throws IOException {
+        Set<File> classpath = new LinkedHashSet<>();
+        for (int i = 0; i < classpathSize; i++) {
+            classpath.add(new File("/home/user/.gradle/caches/modules-2/files-2.1/com.example/library-" + i + "/1.0/library-" + i + "-1.0.jar"));
+        }
+        parameters = new VerifyParameters()
+                .setTaskName("verifyPass_com.example_library_1.0")
+                .setOriginalDependency("com.example:library:1.0")
+                .setSpecifiedRange("com.example:library:[1.0,2.0)")
+                .setAgentJar(new File("/home/user/newrelic-agent.jar"))
+                .setInstrumentationJar(new File("/home/user/instrumentation/library-1.0/build/libs/library-1.0.jar"))
+                .setShouldSuccessfullyApply(true)
+                .setClasspathJars(classpath)
+                .setVerifierPasses("instrumentation/library-1.0 com.example:library:1.0\n", new File("/home/user/build/verifier/passes.txt"))
+                .setVerifierFailures("instrumentation/library-1.0 com.example:library:1.0\n", new File("/home/user/build/verifier/failures.txt"))
+                .setResultStore(ResultStoreOptions.local(new File("/home/user/.gradle/caches/results"), 1024 * 1024))
+                .setClasspathTimings(10, 20);
+        serialized = serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(parameters);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return input.readObject();
+        }
+    }
+}
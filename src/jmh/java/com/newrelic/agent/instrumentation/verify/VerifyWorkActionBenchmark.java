@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One work item end to end, against a stub agent whose verifier returns at once: what the plugin itself costs
+ * per version, from parameters to recorded result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifyWorkActionBenchmark {
+    private Path workDir;
+    private VerifyWorkAction action;
+
+    @Setup
+    public void createAction() throws IOException {
+        workDir = Files.createTempDirectory("jmh-verify");
+        File agentJar = workDir.resolve("newrelic-agent.jar").toFile();
+        StubAgent.build(workDir, agentJar, "");
+        File instrumentationJar = workDir.resolve("instrumentation.jar").toFile();
+        Files.write(instrumentationJar.toPath(), new byte[] { 1, 2, 3 });
+
+        VerifyParameters parameters = new VerifyParameters()
+                .setTaskName("verifyPass_foo_bar_1.0")
+                .setOriginalDependency("foo:bar:1.0")
+                .setAgentJar(agentJar)
+                .setInstrumentationJar(instrumentationJar)
+                .setShouldSuccessfullyApply(true)
+                .setClasspathJars(Collections.emptySet())
+                .setVerifierPasses("foo:bar:1.0\n", workDir.resolve("passes.txt").toFile())
+                .setVerifierFailures("foo:bar:1.0\n", workDir.resolve("failures.txt").toFile());
+        action = new VerifyWorkAction() {
+            @Override
+            public VerifyParameters getParameters() {
+                return parameters;
+            }
+        };
+    }
+
+    @TearDown
+    public void closeAgent() throws IOException {
+        AgentVerifier.closeAll();
+    }
+
+    @Benchmark
+    public void verify() {
+        action.execute();
+    }
+}
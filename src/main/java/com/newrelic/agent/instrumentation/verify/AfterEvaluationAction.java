@@ -9,39 +9,74 @@ import com.google.common.annotations.VisibleForTesting;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.gradle.api.*;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 import org.slf4j.Logger;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.BATCH_SIZE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.BATCH_TASK_NAME;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.BISECT_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.BISECT_TASK_NAME;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.FAIL_FAST_PATH;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.FAIL_FAST_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.FULL_RUN_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.INCREMENTAL_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.PREFETCH_CONNECTIONS_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.PREFETCH_REPOSITORY_NAME;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.PREFETCH_REPOSITORY_PATH;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.PREFETCH_TASK_NAME;
 import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.VERIFIER_TASK_NAME;
 
 public class AfterEvaluationAction implements Action<Project> {
+    // verifyInstrumentation itself, or a single verifyPass_/verifyFail_ task, at the end of a task path
+    private static final Pattern VERIFIER_TASK_PATTERN = Pattern.compile(":?(" + VERIFIER_TASK_NAME + "|verify(Pass|Fail)_[^:]+)$");
+
     private VerifyInstrumentationOptions verifyOptions;
     private Task verifyInstrumentationTask;
     private final Logger logger;
     private final File passesFileDir;
     //this is for testing
     private final Function<Project, List<RemoteRepository>> getRepositoriesFunction;
+    private final Supplier<MavenClient> mavenClientSupplier;
+    private final Supplier<VerificationSummaryService> summaryServiceSupplier;
 
 
-    AfterEvaluationAction(VerifyInstrumentationOptions verifyOptions, Task verifyInstrumentationTask, Logger logger, File passesFileDir) {
-        this(verifyOptions, verifyInstrumentationTask, logger, passesFileDir, MavenProjectUtil::getMavenRepositories);
+    AfterEvaluationAction(VerifyInstrumentationOptions verifyOptions, Task verifyInstrumentationTask, Logger logger, File passesFileDir, Provider<MavenClientService> mavenClientService, Provider<VerificationSummaryService> summaryService) {
+        this(verifyOptions, verifyInstrumentationTask, logger, passesFileDir, MavenProjectUtil::getMavenRepositories, () -> mavenClientService.get().getClient(), summaryService::get);
     }
 
     //this is for testing
     AfterEvaluationAction(VerifyInstrumentationOptions verifyOptions, Task verifyInstrumentationTask, Logger logger, File passesFileDir, Function<Project, List<RemoteRepository>> getRepositoriesFunction) {
+        this(verifyOptions, verifyInstrumentationTask, logger, passesFileDir, getRepositoriesFunction, new MavenClient());
+    }
+
+    //this is for testing
+    AfterEvaluationAction(VerifyInstrumentationOptions verifyOptions, Task verifyInstrumentationTask, Logger logger, File passesFileDir, Function<Project, List<RemoteRepository>> getRepositoriesFunction, MavenClient mavenClient) {
+        this(verifyOptions, verifyInstrumentationTask, logger, passesFileDir, getRepositoriesFunction, () -> mavenClient, () -> null);
+    }
+
+    private AfterEvaluationAction(VerifyInstrumentationOptions verifyOptions, Task verifyInstrumentationTask, Logger logger, File passesFileDir, Function<Project, List<RemoteRepository>> getRepositoriesFunction,
+                                  Supplier<MavenClient> mavenClientSupplier, Supplier<VerificationSummaryService> summaryServiceSupplier) {
         this.verifyOptions = verifyOptions;
         this.verifyInstrumentationTask = verifyInstrumentationTask;
         this.logger = logger;
         this.passesFileDir = passesFileDir;
         this.getRepositoriesFunction = getRepositoriesFunction;
+        this.mavenClientSupplier = mavenClientSupplier;
+        this.summaryServiceSupplier = summaryServiceSupplier;
     }
 
     /**
@@ -51,63 +86,223 @@ public class AfterEvaluationAction implements Action<Project> {
      */
     @Override
     public void execute(@NonNull Project project) {
+        if (!shouldVerify(project)) {
+            return;
+        }
+
+        // get the repository sources from the user's build.gradle
+        verify(project, getRepositories(project), null);
+    }
+
+    /**
+     * Whether verifyInstrumentation was requested for the project, and it has something to verify.
+     *
+     * @throws GradleException if the project's options contradict each other
+     */
+    boolean shouldVerify(Project project) {
         if (!projectRequiresVerification(project)) {
             // only prepare dependencies if verifyInstrumentation task is requested
-            return;
+            return false;
         }
 
         if (verifyOptions.passesOnly().size() + verifyOptions.passes().size() == 0) {
             logger.info("Nothing to do - 'passesOnly' or 'passes' is required.");
-            return;
+            return false;
         }
 
         if (verifyOptions.passesOnly().size() > 0 == verifyOptions.passes().size() > 0) {
             throw new GradleException("'passesOnly' cannot be specified with 'passes'.");
         }
+        return true;
+    }
 
-        // get the repository sources from the user's build.gradle
+    List<RemoteRepository> getRepositories(Project project) {
+        return getRepositoriesFunction.apply(project);
+    }
+
+    /**
+     * Every range the project's verification looks up.
+     */
+    Set<String> getRanges() {
+        return collectRanges(verifyOptions);
+    }
+
+    /**
+     * The client shared by every project in the build.
+     */
+    MavenClient getMavenClient() {
+        return mavenClientSupplier.get();
+    }
+
+    /**
+     * Registers the project's verification tasks. With an aggregate plan, the project's versions are verified by
+     * the plan's task, which verifyInstrumentation is finalized by, unless the project is bisecting.
+     */
+    void verify(Project project, List<RemoteRepository> mavenRepositories, AggregatePlan aggregate) {
+        // one client, shared by every project in the build, serves all of the range lookups
+        MavenClient mavenClient = getMavenClient();
 
-        List<RemoteRepository> mavenRepositories = getRepositoriesFunction.apply(project);
+        // resolve every range up front and concurrently; the task factory's lookups are then answered from memory
+        mavenClient.resolveAvailableVersions(collectRanges(verifyOptions), mavenRepositories);
 
-        // create collection of excludes
-        Set<String> excludedVersions = buildExcludedVersions(verifyOptions, mavenRepositories, MavenClient.INSTANCE);
+        // excluded versions, ranges and regexes, indexed by artifact
+        ExclusionMatcher exclusions = buildExclusions(verifyOptions);
 
-        ProjectTaskFactory taskFactory = new ProjectTaskFactory(project, excludedVersions, logger, passesFileDir);
+        ProjectTaskFactory taskFactory = new ProjectTaskFactory(project, exclusions, logger, passesFileDir, mavenClient);
         taskFactory.setPassesFile(verifyOptions.passesFileName);
+        taskFactory.setIncremental(isIncremental(project));
+        taskFactory.setFailFastFile(failFastFile(project));
 
         // Configuration to download/reference the agent.
         createProjectDependencyOnAgent(project, verifyOptions.getNrAgent());
 
-        Stream<? extends Task> classPathTasks = verifyOptions.verifyClasspath
+        Stream<TaskProvider<VerifyTask>> classPathTasks = verifyOptions.verifyClasspath
                 ? taskFactory.buildClasspathTasks()
                 : Stream.empty();
 
-        // create verification task for version ranges
-        Stream<Task> passFailTasks = (verifyOptions.passesOnly().size() > 0)
+        // register verification tasks for version ranges; they are only created if they are going to run
+        Stream<TaskProvider<VerifyTask>> passFailTasks = (verifyOptions.passesOnly().size() > 0)
                 ? taskFactory.buildTasksForPassesOnly(verifyOptions)
                 : taskFactory.buildExplicitPassFailTasks(verifyOptions);
 
         verifyInstrumentationTask.dependsOn(project.getTasks().getByName("jar"));
 
-        Stream.concat(classPathTasks, passFailTasks)
-                .forEach(verifyInstrumentationTask::finalizedBy);
+        // the versions most likely to fail first, so a failure shows up early
+        List<TaskProvider<VerifyTask>> verifyTasks = taskFactory.prioritize(Stream.concat(classPathTasks, passFailTasks)
+                .collect(Collectors.toList()));
+
+        ShardPlan shard = ShardPlan.forBuild(project);
+        if (shard != null) {
+            // the other versions are left to the other shards, but can still be run on their own
+            int total = verifyTasks.size();
+            verifyTasks.removeIf(verifyTask -> !shard.includes(VerificationDurations.taskPath(project.getPath(), verifyTask.getName())));
+            logger.info("Shard " + shard + ": verifying " + verifyTasks.size() + " of " + total + " versions");
+        }
+
+        // the batch, bisect and aggregate tasks verify the versions without creating their tasks
+        List<RegisteredVersion> versions = taskFactory.registered(verifyTasks);
+        int batchSize = getIntProperty(project, BATCH_SIZE_PROPERTY);
+        if (getBooleanProperty(project, BISECT_PROPERTY)) {
+            // only the declared boundaries are checked; the per-version tasks stay available for the full matrix
+            TaskProvider<VerifyBisectTask> bisectTask = project.getTasks().register(BISECT_TASK_NAME, VerifyBisectTask.class, task -> {
+                versions.forEach(task::add);
+                task.dependsOn("jar");
+            });
+            verifyInstrumentationTask.finalizedBy(bisectTask);
+        } else if (aggregate != null) {
+            // one task, and one work queue, for every project in the build
+            aggregate.add(project, versions);
+            verifyInstrumentationTask.finalizedBy(aggregate.getTask());
+        } else if (batchSize > 0) {
+            // the per-version tasks stay available on their own, but verifyInstrumentation runs them as one batch
+            TaskProvider<VerifyBatchTask> batchTask = project.getTasks().register(BATCH_TASK_NAME, VerifyBatchTask.class, task -> {
+                task.setBatchSize(batchSize);
+                versions.forEach(task::add);
+                task.dependsOn("jar");
+            });
+            verifyInstrumentationTask.finalizedBy(batchTask);
+        } else {
+            verifyTasks.forEach(verifyInstrumentationTask::finalizedBy);
+            // finalizers otherwise run in name order; a task submits its work and returns, so this orders the work too
+            for (int i = 1; i < verifyTasks.size(); i++) {
+                TaskProvider<VerifyTask> previous = verifyTasks.get(i - 1);
+                verifyTasks.get(i).configure(task -> task.shouldRunAfter(previous));
+            }
+        }
+
+        VerificationSummaryService summaryService = summaryServiceSupplier.get();
+        if (summaryService != null) {
+            taskFactory.getConfigurationTimes().forEach(summaryService.getSummary()::addConfigurationTime);
+            // the client is shared by every project, so the last project to be configured has the build's lookups
+            summaryService.getSummary().setMetadataLookups(mavenClient);
+            summaryService.trackReportLog(taskFactory.getReportLog());
+        }
+
+        int prefetchConnections = getIntProperty(project, PREFETCH_CONNECTIONS_PROPERTY);
+        if (prefetchConnections > 0 && !taskFactory.getDependencySets().isEmpty()) {
+            registerPrefetchTask(project, taskFactory.getDependencySets(), mavenRepositories, prefetchConnections);
+        }
+    }
+
+    /**
+     * Downloads the whole matrix concurrently before any verification runs, into a repository that the
+     * verification configurations check before the project's own repositories.
+     */
+    private void registerPrefetchTask(Project project, Map<String, List<String>> dependencySets, List<RemoteRepository> mavenRepositories, int connections) {
+        File repositoryDir = new File(project.getGradle().getGradleUserHomeDir(), PREFETCH_REPOSITORY_PATH);
+        // the first project to prefetch sets the connections for the whole build
+        Provider<PrefetchService> prefetchService = project.getGradle().getSharedServices()
+                .registerIfAbsent(PrefetchService.NAME, PrefetchService.class, spec -> {
+                    spec.getParameters().getRepositoryDir().set(repositoryDir);
+                    spec.getParameters().getConnections().set(connections);
+                });
+
+        TaskProvider<PrefetchTask> prefetchTask = project.getTasks().register(PREFETCH_TASK_NAME, PrefetchTask.class, task -> {
+            task.getDependencySets().addAll(dependencySets.values());
+            mavenRepositories.forEach(repository -> task.getRepositoryUrls().add(repository.getUrl()));
+            task.setConnections(connections);
+            task.setPrefetchService(prefetchService);
+            task.usesService(prefetchService);
+        });
+        verifyInstrumentationTask.dependsOn(prefetchTask);
+        project.getTasks().withType(VerifyTask.class).configureEach(task -> task.mustRunAfter(prefetchTask));
+        project.getTasks().withType(VerifyBatchTask.class).configureEach(task -> task.mustRunAfter(prefetchTask));
+        project.getTasks().withType(VerifyBisectTask.class).configureEach(task -> task.mustRunAfter(prefetchTask));
+
+        // mavenLocal semantics: a pom whose jar wasn't prefetched is skipped rather than taken as a module without artifacts
+        MavenArtifactRepository prefetchRepository = project.getRepositories().mavenLocal(repository -> {
+            repository.setName(PREFETCH_REPOSITORY_NAME);
+            repository.setUrl(repositoryDir);
+            repository.content(content -> content.onlyForConfigurations(dependencySets.keySet().toArray(new String[0])));
+        });
+        project.getRepositories().remove(prefetchRepository);
+        project.getRepositories().addFirst(prefetchRepository);
+    }
+
+    /**
+     * The marker shared by every project's verifications with {@code -PverifierFailFast}, otherwise null. A marker
+     * left by an earlier build is cleared by the {@link FailFastService} once this one starts executing.
+     */
+    private static File failFastFile(Project project) {
+        return getBooleanProperty(project, FAIL_FAST_PROPERTY)
+                ? new File(project.getRootProject().getBuildDir(), FAIL_FAST_PATH)
+                : null;
     }
 
     /**
-     * True if we're going to execute verifyInstrumentation on the given project or subproject.
+     * Incremental unless {@code verifierFullRun} asks for every version to be verified.
+     */
+    private static boolean isIncremental(Project project) {
+        return getBooleanProperty(project, INCREMENTAL_PROPERTY) && !getBooleanProperty(project, FULL_RUN_PROPERTY);
+    }
+
+    static boolean getBooleanProperty(Project project, String name) {
+        Object value = project.findProperty(name);
+        // -Pname on its own means true
+        return value != null && (value.toString().isEmpty() || Boolean.parseBoolean(value.toString()));
+    }
+
+    static int getIntProperty(Project project, String name) {
+        Object value = project.findProperty(name);
+        return value == null ? 0 : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * True if we're going to execute verifyInstrumentation, or one of the per-version verification tasks,
+     * on the given project or subproject.
      *
      * Useful in the evaluate phase to add dependencies before the execution phase for only the projects we will actually verify.
      */
     public boolean projectRequiresVerification(Project project) {
         return project.getGradle().getStartParameter().getTaskNames().stream()
-                .filter(taskName -> taskName.endsWith(VERIFIER_TASK_NAME))
+                .filter(taskName -> VERIFIER_TASK_PATTERN.matcher(taskName).find())
                 .map(taskName -> getProjectPath(project, taskName))
                 .filter(Objects::nonNull)
                 .anyMatch(projectName -> project.getProjectDir().getPath().startsWith(projectName));
     }
 
     private String getProjectPath(Project project, String taskName) {
-        String projectWithVerifyDir = taskName.replaceFirst(":?" + VERIFIER_TASK_NAME + "$", "").replaceFirst("^:*", ":");
+        String projectWithVerifyDir = VERIFIER_TASK_PATTERN.matcher(taskName).replaceFirst("").replaceFirst("^:*", ":");
         if (projectWithVerifyDir.equals(":")) {
             return project.getGradle().getStartParameter().getCurrentDir().getPath();
         }
@@ -130,18 +325,31 @@ public class AfterEvaluationAction implements Action<Project> {
         }
     }
 
+    /**
+     * Every range the task factory will look up, including the implicit
+     * {@code group:name:[0,)} range for each {@code passesOnly} artifact.
+     */
     @VisibleForTesting
-    public Set<String> buildExcludedVersions(VerifyInstrumentationOptions verifyOptions, List<RemoteRepository> mavenRepositories, MavenClient mavenClient) {
-        Set<String> excludedVersions = new HashSet<>(verifyOptions.excludeRegex());
-
-        Set<String> resolvedExclusions = verifyOptions.exclude().stream()
-                .flatMap((String excludeRange) ->
-                        mavenClient.resolveAvailableVersions(excludeRange, mavenRepositories).stream()
-                                .peek(dep -> logger.info("Excluding artifact: " + dep)))
-                .collect(Collectors.toSet());
-
-        excludedVersions.addAll(resolvedExclusions);
+    static Set<String> collectRanges(VerifyInstrumentationOptions verifyOptions) {
+        Set<String> ranges = new LinkedHashSet<>();
+        ranges.addAll(verifyOptions.passes().keySet());
+        ranges.addAll(verifyOptions.passesOnly().keySet());
+        ranges.addAll(verifyOptions.fails().keySet());
+        verifyOptions.passesOnly().keySet().stream()
+                .map(range -> range.substring(0, range.lastIndexOf(':')) + ":[0,)")
+                .forEach(ranges::add);
+        return ranges;
+    }
 
-        return excludedVersions;
+    /**
+     * Exclude ranges are kept as ranges rather than resolved to the versions they cover, so building this
+     * doesn't need the repositories.
+     */
+    @VisibleForTesting
+    static ExclusionMatcher buildExclusions(VerifyInstrumentationOptions verifyOptions) {
+        ExclusionMatcher exclusions = new ExclusionMatcher();
+        verifyOptions.exclude().forEach(exclusions::exclude);
+        verifyOptions.excludeRegex().forEach(exclusions::excludeRegex);
+        return exclusions;
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The agent's {@code WeavePackageVerifier}, loaded once per agent jar and reused by every verification
+ * in the worker. Loading the agent is the expensive part of a verification: it is a large jar, and a fresh
+ * class loader means loading and warming up its classes all over again.
+ *
+ * <p>Verifiers are keyed by the jar's path and content hash, so a rebuilt agent gets a loader of its own.
+ * {@link AgentVerifierService} closes them all when the build finishes, and {@link WorkerCaches} once a worker
+ * process has been idle for a while.</p>
+ */
+final class AgentVerifier implements Closeable {
+    static final String VERIFIER_CLASS_NAME = "com.newrelic.weave.verification.WeavePackageVerifier";
+
+    private static final ConcurrentMap<String, AgentVerifier> verifiers = new ConcurrentHashMap<>();
+
+    private final URLClassLoader agentLoader;
+    private final MethodHandle verifyHandle;
+
+    private AgentVerifier(File agentJar) throws IOException, ReflectiveOperationException {
+        agentLoader = new URLClassLoader(new URL[] { agentJar.toURI().toURL() });
+        try {
+            Class<?> weavePackageVerifier = agentLoader.loadClass(VERIFIER_CLASS_NAME);
+            verifyHandle = MethodHandles.publicLookup().findStatic(
+                    weavePackageVerifier,
+                    "verify",
+                    MethodType.methodType(boolean.class, PrintStream.class, String.class, List.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            agentLoader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the verifier for the given agent jar, loading it if this worker hasn't already.
+     */
+    static AgentVerifier forAgent(File agentJar) throws IOException, ReflectiveOperationException {
+        String key = agentJar.getAbsolutePath() + "@" + FileHashes.sha256(agentJar);
+        AgentVerifier verifier = verifiers.get(key);
+        if (verifier != null) {
+            return verifier;
+        }
+
+        synchronized (verifiers) {
+            verifier = verifiers.get(key);
+            if (verifier == null) {
+                verifier = new AgentVerifier(agentJar);
+                verifiers.put(key, verifier);
+            }
+            return verifier;
+        }
+    }
+
+    /**
+     * Runs {@code WeavePackageVerifier.verify}, which prints its findings to {@code out}.
+     *
+     * @return true if the instrumentation applied to the classpath
+     */
+    boolean verify(PrintStream out, String instrumentationJar, List<String> classpathJars) throws Throwable {
+        return (boolean) verifyHandle.invoke(out, instrumentationJar, classpathJars);
+    }
+
+    @Override
+    public void close() throws IOException {
+        agentLoader.close();
+    }
+
+    /**
+     * Closes every cached verifier. The next verification loads the agent again.
+     */
+    static void closeAll() throws IOException {
+        List<AgentVerifier> closing;
+        synchronized (verifiers) {
+            closing = new ArrayList<>(verifiers.values());
+            verifiers.clear();
+        }
+
+        IOException failure = null;
+        for (AgentVerifier verifier : closing) {
+            try {
+                verifier.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        FileHashes.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Ties the lifetime of the cached {@link AgentVerifier}s and the {@link OpenJars} to the build, so the agent's
+ * class loader and the open jars don't outlive it in the daemon.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class AgentVerifierService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    static final String NAME = "verifyInstrumentationAgentVerifier";
+
+    @Override
+    public void close() throws Exception {
+        try {
+            OpenJars.closeAll();
+        } finally {
+            AgentVerifier.closeAll();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.AGGREGATE_TASK_NAME;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.BATCH_SIZE_PROPERTY;
+
+/**
+ * Sets up every project's verification together, with {@code -PverifierAggregate}, instead of one project at a time.
+ *
+ * <p>Once every project is evaluated, the ranges of all of them are looked up in one concurrent pass, so a
+ * {@code group:name} that many projects verify is fetched once. Each project then registers its tasks as usual, but
+ * its versions are verified by a single {@value VerificationPlugin#AGGREGATE_TASK_NAME} task on the root project,
+ * which feeds every version in the build to one work queue.</p>
+ */
+final class AggregatePlan {
+    private static final String NAME = "verifyInstrumentationAggregatePlan";
+
+    private final Project rootProject;
+    private final Action<? super VerifyBatchTask> configureTask;
+    private final Map<Project, AfterEvaluationAction> actions = new LinkedHashMap<>();
+    private final List<RegisteredVersion> versions = new ArrayList<>();
+    private final List<Object> jarTasks = new ArrayList<>();
+    private TaskProvider<VerifyBatchTask> task;
+
+    private AggregatePlan(Project rootProject, Action<? super VerifyBatchTask> configureTask) {
+        this.rootProject = rootProject;
+        this.configureTask = configureTask;
+    }
+
+    /**
+     * The build's plan, which sets itself up once every project is evaluated.
+     *
+     * @param configureTask sets the services, worker options and fail-fast check of the aggregate task
+     */
+    static AggregatePlan forBuild(Project project, Action<? super VerifyBatchTask> configureTask) {
+        ExtraPropertiesExtension extra = project.getRootProject().getExtensions().getExtraProperties();
+        if (extra.has(NAME)) {
+            return (AggregatePlan) extra.get(NAME);
+        }
+        AggregatePlan plan = new AggregatePlan(project.getRootProject(), configureTask);
+        extra.set(NAME, plan);
+        project.getGradle().projectsEvaluated(gradle -> plan.configure());
+        return plan;
+    }
+
+    /**
+     * Sets up the project's verification along with everyone else's, rather than after it's evaluated.
+     */
+    void plan(Project project, AfterEvaluationAction action) {
+        actions.put(project, action);
+    }
+
+    /**
+     * Looks up every project's ranges, then has each project register its tasks.
+     */
+    void configure() {
+        Map<Project, List<RemoteRepository>> repositories = new LinkedHashMap<>();
+        // projects usually share their repositories, and then all of the ranges go in one lookup
+        Map<List<RemoteRepository>, Set<String>> ranges = new LinkedHashMap<>();
+        actions.forEach((project, action) -> {
+            if (action.shouldVerify(project)) {
+                List<RemoteRepository> projectRepositories = action.getRepositories(project);
+                repositories.put(project, projectRepositories);
+                ranges.computeIfAbsent(projectRepositories, key -> new LinkedHashSet<>()).addAll(action.getRanges());
+            }
+        });
+        if (repositories.isEmpty()) {
+            return;
+        }
+
+        MavenClient mavenClient = actions.get(repositories.keySet().iterator().next()).getMavenClient();
+        ranges.forEach((projectRepositories, projectRanges) -> mavenClient.resolveAvailableVersions(projectRanges, projectRepositories));
+
+        int batchSize = AfterEvaluationAction.getIntProperty(rootProject, BATCH_SIZE_PROPERTY);
+        task = rootProject.getTasks().register(AGGREGATE_TASK_NAME, VerifyBatchTask.class, batchTask -> {
+            configureTask.execute(batchTask);
+            batchTask.setBatchSize(Math.max(1, batchSize));
+            versions.forEach(batchTask::add);
+            batchTask.dependsOn(jarTasks);
+        });
+
+        repositories.forEach((project, projectRepositories) -> actions.get(project).verify(project, projectRepositories, this));
+    }
+
+    /**
+     * Adds the project's versions to the aggregate task, in the order they should run.
+     */
+    void add(Project project, List<RegisteredVersion> projectVersions) {
+        versions.addAll(projectVersions);
+        jarTasks.add(project.getTasks().named("jar"));
+    }
+
+    TaskProvider<VerifyBatchTask> getTask() {
+        return task;
+    }
+}
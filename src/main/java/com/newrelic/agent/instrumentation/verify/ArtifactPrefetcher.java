@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.impl.DefaultServiceLocator;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transfer.NoTransporterException;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.eclipse.aether.transport.http.HttpTransporterFactory;
+import org.eclipse.aether.util.artifact.JavaScopes;
+import org.eclipse.aether.util.filter.DependencyFilterUtils;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads the dependency sets of many library versions at once into a local maven repository.
+ *
+ * <p>Each set is resolved the way maven would resolve it, so the result can differ from Gradle's in
+ * the odd conflict; whatever the prefetch misses, Gradle still downloads itself when the task runs.</p>
+ *
+ * <p>One prefetcher is shared by every project's prefetch task through the {@link PrefetchService}, so the
+ * connections to a repository are capped for the whole build, however many projects prefetch at once.</p>
+ */
+class ArtifactPrefetcher implements Closeable {
+    private static final Logger logger = Logging.getLogger(ArtifactPrefetcher.class);
+
+    private final int connections;
+    // every repository gets its own connections, so a slow one doesn't hold up the others
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final RepositorySystem system;
+    private final DefaultRepositorySystemSession session;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param repositoryDir the local repository the artifacts are downloaded into
+     * @param connections   how many artifacts are downloaded from each repository at the same time
+     */
+    ArtifactPrefetcher(File repositoryDir, int connections) {
+        this.connections = connections;
+        system = newRepositorySystem(this::permits);
+        session = MavenRepositorySystemUtils.newSession();
+        session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, new LocalRepository(repositoryDir)));
+        session.setConfigProperty("aether.connector.basic.threads", 1);
+        session.setReadOnly();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(connections, connections, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "verify-instrumentation-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Resolves every set of {@code group:name:version} coordinates.
+     *
+     * @return the number of sets that couldn't be resolved completely
+     */
+    int prefetch(Collection<List<String>> dependencySets, List<RemoteRepository> repositories) {
+        if (dependencySets.isEmpty()) {
+            return 0;
+        }
+        repositories.forEach(this::permits);
+        growExecutor();
+
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture.allOf(dependencySets.stream()
+                .map(dependencySet -> CompletableFuture.runAsync(() -> {
+                    if (!resolve(system, session, dependencySet, repositories)) {
+                        failures.incrementAndGet();
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        return failures.get();
+    }
+
+    Semaphore permits(RemoteRepository repository) {
+        return permits.computeIfAbsent(repository.getUrl(), url -> new Semaphore(connections));
+    }
+
+    /**
+     * Each set downloads one artifact at a time, so there are enough threads to keep every repository seen so far busy.
+     */
+    private synchronized void growExecutor() {
+        int threads = connections * Math.max(1, permits.size());
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static RepositorySystem newRepositorySystem(Function<RemoteRepository, Semaphore> permits) {
+        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator()
+                .addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class)
+                .setServices(TransporterFactory.class,
+                        new LimitedTransporterFactory(new FileTransporterFactory(), permits),
+                        new LimitedTransporterFactory(new HttpTransporterFactory(), permits));
+        return locator.getService(RepositorySystem.class);
+    }
+
+    private static boolean resolve(RepositorySystem system, DefaultRepositorySystemSession session, List<String> dependencySet, List<RemoteRepository> repositories) {
+        CollectRequest collectRequest = new CollectRequest();
+        try {
+            dependencySet.forEach(coordinates ->
+                    collectRequest.addDependency(new Dependency(new DefaultArtifact(coordinates), JavaScopes.RUNTIME)));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Not prefetching {}: {}", dependencySet, e.getMessage());
+            return false;
+        }
+        collectRequest.setRepositories(repositories);
+
+        try {
+            system.resolveDependencies(session,
+                    new DependencyRequest(collectRequest, DependencyFilterUtils.classpathFilter(JavaScopes.RUNTIME)));
+            return true;
+        } catch (DependencyResolutionException e) {
+            // whatever did resolve is in the repository; Gradle fetches the rest when the task runs
+            logger.debug("Unable to prefetch all of {}: {}", dependencySet, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The transporters of another factory, each holding a permit of its repository while it transfers.
+     */
+    static final class LimitedTransporterFactory implements TransporterFactory {
+        private final TransporterFactory factory;
+        private final Function<RemoteRepository, Semaphore> permits;
+
+        LimitedTransporterFactory(TransporterFactory factory, Function<RemoteRepository, Semaphore> permits) {
+            this.factory = factory;
+            this.permits = permits;
+        }
+
+        @Override
+        public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository) throws NoTransporterException {
+            return new LimitedTransporter(factory.newInstance(session, repository), permits.apply(repository));
+        }
+
+        @Override
+        public float getPriority() {
+            return factory.getPriority();
+        }
+    }
+
+    private static final class LimitedTransporter implements Transporter {
+        private final Transporter transporter;
+        private final Semaphore permits;
+
+        LimitedTransporter(Transporter transporter, Semaphore permits) {
+            this.transporter = transporter;
+            this.permits = permits;
+        }
+
+        @Override
+        public int classify(Throwable error) {
+            return transporter.classify(error);
+        }
+
+        @Override
+        public void peek(PeekTask task) throws Exception {
+            permits.acquire();
+            try {
+                transporter.peek(task);
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void get(GetTask task) throws Exception {
+            permits.acquire();
+            try {
+                transporter.get(task);
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void put(PutTask task) throws Exception {
+            permits.acquire();
+            try {
+                transporter.put(task);
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            transporter.close();
+        }
+    }
+}
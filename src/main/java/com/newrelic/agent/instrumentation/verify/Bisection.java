@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Picks which versions of an artifact to verify, assuming whether the instrumentation applies only changes at a
+ * few versions.
+ *
+ * <p>The versions, oldest first, are split into runs that are all expected to pass or all expected to fail; the
+ * declared boundaries are between the runs. Both ends of every run are verified. A run whose ends both behave as
+ * declared is taken to be right. A run with one end that doesn't is binary searched for the version where the
+ * behavior actually changes. A run with two ends that don't can't be searched, since nothing says where in it the
+ * behavior changes, if it does at all; only its two ends are reported, as the versions in between were never
+ * verified.</p>
+ *
+ * <p>Each round's versions are independent of each other, so they can be verified in parallel:
+ * call {@link #nextVersions()}, verify them, {@link #record} the results, and repeat until there are none.</p>
+ */
+final class Bisection {
+    private final int size;
+    private final List<Run> runs = new ArrayList<>();
+    private final Map<Integer, Boolean> results = new HashMap<>();
+
+    /**
+     * @param expected whether each version, oldest first, is expected to pass
+     */
+    Bisection(List<Boolean> expected) {
+        size = expected.size();
+        int start = 0;
+        for (int i = 1; i <= expected.size(); i++) {
+            if (i == expected.size() || !expected.get(i).equals(expected.get(start))) {
+                runs.add(new Run(start, i - 1));
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * The versions to verify next, as indexes into the expected list. Empty once the bisection is done.
+     */
+    SortedSet<Integer> nextVersions() {
+        SortedSet<Integer> next = new TreeSet<>();
+        for (Run run : runs) {
+            run.next(next);
+        }
+        next.removeAll(results.keySet());
+        return next;
+    }
+
+    /**
+     * Records whether the version behaved as it was declared to.
+     */
+    void record(int index, boolean asDeclared) {
+        results.put(index, asDeclared);
+    }
+
+    /**
+     * The ranges of versions, as inclusive {@code [first, last]} indexes, that were found not to behave as declared.
+     */
+    List<int[]> getMismatches() {
+        List<int[]> mismatches = new ArrayList<>();
+        for (Run run : runs) {
+            run.addMismatches(mismatches);
+        }
+        return Collections.unmodifiableList(mismatches);
+    }
+
+    int getVerifiedCount() {
+        return results.size();
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    private final class Run {
+        final int first;
+        final int last;
+        // the search narrows down [low, high], which always has one end as declared and the other not
+        int low;
+        int high;
+
+        Run(int first, int last) {
+            this.first = first;
+            this.last = last;
+            this.low = first;
+            this.high = last;
+        }
+
+        void next(SortedSet<Integer> next) {
+            Boolean firstResult = results.get(first);
+            Boolean lastResult = results.get(last);
+            if (firstResult == null || lastResult == null) {
+                next.add(first);
+                next.add(last);
+                return;
+            }
+            if (firstResult.equals(lastResult)) {
+                return;
+            }
+            narrow();
+            if (high - low > 1) {
+                next.add((low + high) >>> 1);
+            }
+        }
+
+        /**
+         * Moves whichever end of the search the midpoint's result belongs with.
+         */
+        void narrow() {
+            boolean lowAsDeclared = results.get(low);
+            int middle = (low + high) >>> 1;
+            while (high - low > 1 && results.containsKey(middle)) {
+                if (results.get(middle) == lowAsDeclared) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+                middle = (low + high) >>> 1;
+            }
+        }
+
+        void addMismatches(List<int[]> mismatches) {
+            Boolean firstResult = results.get(first);
+            Boolean lastResult = results.get(last);
+            if (firstResult == null || lastResult == null || (firstResult && lastResult)) {
+                return;
+            }
+            if (!firstResult && !lastResult) {
+                // only the ends were verified, so only they are known to be wrong
+                mismatches.add(new int[] { first, first });
+                if (last != first) {
+                    mismatches.add(new int[] { last, last });
+                }
+                return;
+            }
+            narrow();
+            // the versions from the change to the end of the run that doesn't behave as declared
+            mismatches.add(firstResult ? new int[] { high, last } : new int[] { first, low });
+        }
+    }
+}
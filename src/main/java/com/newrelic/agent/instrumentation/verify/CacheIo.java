@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * I/O shared by the caches that other builds and CI agents read at the same time: the metadata cache and the
+ * result stores.
+ */
+final class CacheIo {
+
+    /**
+     * Writes the file beside its target and moves it into place, so other builds never see half an entry.
+     */
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads the rest of the response body and closes it without disconnecting, so the connection goes back to the
+     * keep-alive pool. Read here rather than left to the JDK's cleaner thread, so the next request finds it there.
+     */
+    static void release(HttpURLConnection connection) throws IOException {
+        InputStream body = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (body != null) {
+            try {
+                ByteStreams.exhaust(body);
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    private CacheIo() {}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.Configuration;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times how long a verification configuration takes to resolve, and how long its jars then take to download.
+ *
+ * <p>Gradle resolves the classpath wherever it is first asked for it, which for a cacheable task is while
+ * fingerprinting its inputs, before the task action. So both are timed by a hook on the configuration: once the
+ * graph is resolved, the hook fetches the jars through the same lenient view the task uses, and times that. Waiting
+ * for a worker or for the task to be scheduled is never counted. Only when the hook didn't run, such as for a
+ * classpath that came back from the configuration cache, is the download timed by {@link #files}.</p>
+ *
+ * <p>The timings are transient: a timer that comes back from the configuration cache starts over, rather than
+ * comparing its clock with the one of the build that stored it.</p>
+ */
+final class ClasspathTimer {
+    private transient volatile long resolutionStart;
+    private transient volatile long resolutionNanos;
+    private transient volatile long downloadNanos = -1;
+    private transient volatile Set<File> files;
+
+    /**
+     * Times the configuration's resolution, and the download of its jars, from now on.
+     */
+    void attach(Configuration configuration) {
+        configuration.getIncoming().beforeResolve(dependencies -> resolutionStart = System.nanoTime());
+        configuration.getIncoming().afterResolve(dependencies -> {
+            long resolutionEnd = System.nanoTime();
+            resolutionNanos = resolutionEnd - resolutionStart;
+            dependencies.artifactView(view -> view.lenient(true)).getFiles().getFiles();
+            downloadNanos = System.nanoTime() - resolutionEnd;
+        });
+    }
+
+    /**
+     * The classpath's files, resolving and downloading them the first time they are asked for.
+     */
+    synchronized Set<File> files(ArtifactCollection classpath) {
+        if (files == null) {
+            if (classpath == null) {
+                files = Collections.emptySet();
+            } else {
+                long start = System.nanoTime();
+                files = classpath.getArtifactFiles().getFiles();
+                if (downloadNanos < 0) {
+                    // the hook didn't see a resolution, so time the fetch here
+                    downloadNanos = System.nanoTime() - start;
+                }
+            }
+        }
+        return files;
+    }
+
+    long getResolutionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(resolutionNanos);
+    }
+
+    long getDownloadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, downloadNanos));
+    }
+}
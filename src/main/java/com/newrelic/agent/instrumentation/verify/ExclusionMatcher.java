@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionConstraint;
+import org.eclipse.aether.version.VersionScheme;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether a {@code group:name:version} is excluded from verification, from the {@code exclude} and
+ * {@code excludeRegex} options.
+ *
+ * <p>
+ *     Rules are indexed by {@code group:name}, so a version is only checked against the rules for its own artifact:
+ *     exact versions are looked up in a set, ranges are evaluated against the version with the same
+ *     {@link GenericVersionScheme} the ranges are resolved with, and the regexes are joined into one pattern.
+ *     Nothing is looked up in a repository.
+ * </p>
+ *
+ * <p>
+ *     A regex is indexed by its artifact when it starts with a plain {@code group:name:}, reading the dots in the
+ *     group as dots. Any other regex is checked against every version.
+ * </p>
+ */
+class ExclusionMatcher {
+    // group:name: with nothing that could match more than one artifact, other than the dots themselves
+    private static final Pattern ARTIFACT_PREFIX = Pattern.compile("^([\\w.-]+:[\\w.-]+):");
+    // numbered and named groups can't be renumbered into a combined pattern
+    private static final Pattern GROUP_REFERENCE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]");
+
+    private final VersionScheme versionScheme = new GenericVersionScheme();
+    private final Map<String, Set<String>> versions = new HashMap<>();
+    private final Map<String, List<VersionConstraint>> ranges = new HashMap<>();
+    private final Map<String, List<String>> regexes = new HashMap<>();
+    private final List<String> unindexedRegexes = new ArrayList<>();
+
+    // built on first use, from the regexes above
+    private Map<String, List<Pattern>> artifactPatterns;
+    private List<Pattern> unindexedPatterns;
+
+    /**
+     * Treats each of the strings as an {@code excludeRegex}.
+     */
+    static ExclusionMatcher ofRegexes(Collection<String> regexes) {
+        ExclusionMatcher matcher = new ExclusionMatcher();
+        regexes.forEach(matcher::excludeRegex);
+        return matcher;
+    }
+
+    /**
+     * Excludes a single version, or a range of them, like {@code group:name:[1.5,3.4)}.
+     */
+    ExclusionMatcher exclude(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length != 3) {
+            throw new GradleException("The excluded dependency must be \"group:name:versions\", but got \"" + spec + "\"");
+        }
+        String artifact = parts[0] + ":" + parts[1];
+
+        VersionConstraint constraint;
+        try {
+            constraint = versionScheme.parseVersionConstraint(parts[2]);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new GradleException("Invalid excluded version range \"" + spec + "\"", e);
+        }
+
+        if (constraint.getRange() == null) {
+            versions.computeIfAbsent(artifact, key -> new HashSet<>()).add(parts[2]);
+        } else {
+            ranges.computeIfAbsent(artifact, key -> new ArrayList<>()).add(constraint);
+        }
+        return this;
+    }
+
+    /**
+     * Excludes every {@code group:name:version} the regex matches.
+     */
+    ExclusionMatcher excludeRegex(String regex) {
+        // fail here, with the regex that's wrong, rather than on the combined pattern
+        Pattern.compile(regex);
+
+        Matcher prefix = ARTIFACT_PREFIX.matcher(regex);
+        if (prefix.find() && !isQuantifier(regex, prefix.end()) && !hasTopLevelAlternation(regex)) {
+            regexes.computeIfAbsent(prefix.group(1), key -> new ArrayList<>()).add(regex);
+        } else {
+            unindexedRegexes.add(regex);
+        }
+        artifactPatterns = null;
+        unindexedPatterns = null;
+        return this;
+    }
+
+    /**
+     * True if {@code dep}, a {@code group:name:version}, is excluded.
+     */
+    boolean matches(String dep) {
+        int versionStart = dep.lastIndexOf(':');
+        if (versionStart < 0) {
+            return matchesAny(unindexedPatterns(), dep);
+        }
+        String artifact = dep.substring(0, versionStart);
+        String version = dep.substring(versionStart + 1);
+
+        Set<String> artifactVersions = versions.get(artifact);
+        if (artifactVersions != null && artifactVersions.contains(version)) {
+            return true;
+        }
+
+        List<VersionConstraint> artifactRanges = ranges.get(artifact);
+        if (artifactRanges != null && inAnyRange(artifactRanges, version)) {
+            return true;
+        }
+
+        List<Pattern> patterns = artifactPatterns().get(artifact);
+        return (patterns != null && matchesAny(patterns, dep)) || matchesAny(unindexedPatterns(), dep);
+    }
+
+    private boolean inAnyRange(List<VersionConstraint> artifactRanges, String version) {
+        Version parsed;
+        try {
+            parsed = versionScheme.parseVersion(version);
+        } catch (InvalidVersionSpecificationException e) {
+            return false;
+        }
+        return artifactRanges.stream().anyMatch(range -> range.containsVersion(parsed));
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String dep) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(dep).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isQuantifier(String regex, int index) {
+        return index < regex.length() && "?*+{".indexOf(regex.charAt(index)) >= 0;
+    }
+
+    /**
+     * True for {@code a:b:1|c:d:2}, which can match more than the artifact it starts with.
+     */
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, List<Pattern>> artifactPatterns() {
+        if (artifactPatterns == null) {
+            artifactPatterns = regexes.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> combine(entry.getValue())));
+        }
+        return artifactPatterns;
+    }
+
+    private List<Pattern> unindexedPatterns() {
+        if (unindexedPatterns == null) {
+            unindexedPatterns = combine(unindexedRegexes);
+        }
+        return unindexedPatterns;
+    }
+
+    /**
+     * One alternation of all of the regexes, so a version is matched in a single pass, plus any regex that
+     * refers to its own groups and so has to stay on its own.
+     */
+    static List<Pattern> combine(List<String> regexes) {
+        List<Pattern> patterns = new ArrayList<>();
+        List<String> combinable = new ArrayList<>();
+        for (String regex : regexes) {
+            if (GROUP_REFERENCE.matcher(regex).find()) {
+                patterns.add(Pattern.compile(regex));
+            } else {
+                combinable.add(regex);
+            }
+        }
+        if (combinable.size() == 1) {
+            patterns.add(Pattern.compile(combinable.get(0)));
+        } else if (!combinable.isEmpty()) {
+            patterns.add(Pattern.compile(combinable.stream()
+                    .map(regex -> "(?:" + regex + ")")
+                    .collect(Collectors.joining("|"))));
+        }
+        return patterns;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stops the rest of the matrix once a version doesn't verify as expected, when {@code -PverifierFailFast} is set.
+ *
+ * <p>The first failure leaves a marker file naming the version, which every worker process and task can see.
+ * Verification tasks that haven't started yet are skipped before their classpath is resolved, and work items that
+ * are already queued give up without verifying.</p>
+ */
+final class FailFast {
+    private static final Logger logger = Logging.getLogger(FailFast.class);
+
+    /**
+     * Whether a version has already failed. Never, if the marker is null.
+     */
+    static boolean isStopped(File marker) {
+        return marker != null && marker.isFile();
+    }
+
+    /**
+     * Records the failed version, unless another one got there first.
+     */
+    static void stop(File marker, VerifyParameters failed) {
+        if (marker == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(marker.getParentFile().toPath());
+            Files.write(marker.toPath(), (failed.getTaskName() + " " + failed.getOriginalDependency()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            // the first failure is the one reported
+        } catch (IOException e) {
+            logger.warn("Unable to stop the remaining verifications: " + e);
+        }
+    }
+
+    /**
+     * The failure for a version that was given up on. Its result file is removed, so a result from an earlier run
+     * isn't taken for this one's.
+     */
+    static GradleException notVerified(VerifyParameters parameters) {
+        if (parameters.getResultFile() != null) {
+            parameters.getResultFile().delete();
+        }
+        return new GradleException("Not verified " + parameters.getOriginalDependency() + ", stopped after " + describe(parameters.getFailFastFile()) + " failed");
+    }
+
+    /**
+     * The version that failed first.
+     */
+    static String describe(File marker) {
+        try {
+            return new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "another version";
+        }
+    }
+
+    private FailFast() {}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.specs.Spec;
+
+import java.io.File;
+
+/**
+ * Clears the {@link FailFast} marker left by an earlier build, the first time a verification asks whether it should
+ * run. That is at execution rather than configuration, so a build whose tasks come from the configuration cache
+ * starts from a clean slate too.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class FailFastService implements BuildService<FailFastService.Parameters> {
+    static final String NAME = "verifyInstrumentationFailFast";
+
+    public interface Parameters extends BuildServiceParameters {
+        RegularFileProperty getMarkerFile();
+    }
+
+    public FailFastService() {
+        getMarkerFile().delete();
+    }
+
+    File getMarkerFile() {
+        return getParameters().getMarkerFile().get().getAsFile();
+    }
+
+    /**
+     * Skips a task once a version has failed.
+     */
+    static final class NotStopped implements Spec<Task> {
+        private final Provider<FailFastService> service;
+
+        NotStopped(Provider<FailFastService> service) {
+            this.service = service;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return !FailFast.isStopped(service.get().getMarkerFile());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Content hashes of files, remembered by path, size and modification time so that a jar
+ * is only read once however many times it is asked about.
+ */
+final class FileHashes {
+    private static final ConcurrentMap<String, String> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * The SHA-256 of the file's content, as lower case hex.
+     */
+    static String sha256(File file) throws IOException {
+        String key = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        String hash = hashes.get(key);
+        if (hash == null) {
+            hash = Files.asByteSource(file).hash(Hashing.sha256()).toString();
+            hashes.put(key, hash);
+        }
+        return hash;
+    }
+
+    static void clear() {
+        hashes.clear();
+    }
+
+    private FileHashes() {}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Results kept by an HTTP server, so that CI agents share them: {@code GET <url>/<key>} reads a result and
+ * {@code PUT <url>/<key>} stores one. Any server that stores what is put, such as a Gradle build cache node or
+ * a WebDAV share, will do.
+ */
+class HttpResultStore implements ResultStore {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final String url;
+
+    HttpResultStore(String url) {
+        this.url = url.endsWith("/") ? url : url + "/";
+    }
+
+    @Override
+    public VerificationResult load(String key) throws IOException {
+        HttpURLConnection connection = open(key);
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+            CacheIo.release(connection);
+            return null;
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            CacheIo.release(connection);
+            throw new IOException("Unexpected response " + status + " for " + connection.getURL());
+        }
+        try (InputStream input = connection.getInputStream()) {
+            return VerificationResult.decode(ByteStreams.toByteArray(input));
+        }
+    }
+
+    @Override
+    public void store(String key, VerificationResult result) throws IOException {
+        byte[] content = result.encode();
+        HttpURLConnection connection = open(key);
+        connection.setRequestMethod("PUT");
+        // buffered rather than streamed, so a PUT on a stale keep-alive connection is retried
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(content);
+        }
+        int status = connection.getResponseCode();
+        CacheIo.release(connection);
+        if (status / 100 != 2) {
+            throw new IOException("Unexpected response " + status + " for " + connection.getURL());
+        }
+    }
+
+    private HttpURLConnection open(String key) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + key).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        return connection;
+    }
+}
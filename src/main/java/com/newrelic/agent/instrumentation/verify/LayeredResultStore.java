@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+
+/**
+ * A local store in front of a remote one. Results found remotely are copied to the local store, and new
+ * results go to both.
+ *
+ * <p>The remote store is only an optimization: when it can't be reached the verification runs as usual.</p>
+ */
+class LayeredResultStore implements ResultStore {
+    private static final Logger logger = Logging.getLogger(LayeredResultStore.class);
+
+    private final ResultStore local;
+    private final ResultStore remote;
+
+    LayeredResultStore(ResultStore local, ResultStore remote) {
+        this.local = local;
+        this.remote = remote;
+    }
+
+    @Override
+    public VerificationResult load(String key) throws IOException {
+        VerificationResult result = local.load(key);
+        if (result != null) {
+            return result;
+        }
+
+        try {
+            result = remote.load(key);
+        } catch (IOException e) {
+            logger.warn("Unable to read verification result " + key + " from the remote store: " + e);
+            return null;
+        }
+        if (result != null) {
+            local.store(key, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void store(String key, VerificationResult result) throws IOException {
+        local.store(key, result);
+        try {
+            remote.store(key, result);
+        } catch (IOException e) {
+            logger.warn("Unable to write verification result " + key + " to the remote store: " + e);
+        }
+    }
+}
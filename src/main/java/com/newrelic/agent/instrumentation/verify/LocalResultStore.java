@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Results kept as small files under a directory, shared by every build on the machine.
+ *
+ * <p>Reading a result touches its modification time. When the directory grows past its size limit the least
+ * recently used results are deleted until it is back under 80% of the limit.</p>
+ */
+class LocalResultStore implements ResultStore {
+    private final File directory;
+    private final long maxBytes;
+    // estimate of the directory's size, -1 until it has been measured
+    private final AtomicLong size = new AtomicLong(-1);
+
+    LocalResultStore(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public VerificationResult load(String key) throws IOException {
+        File entry = entryFile(key);
+        if (!entry.isFile()) {
+            return null;
+        }
+        byte[] content;
+        try {
+            content = Files.readAllBytes(entry.toPath());
+        } catch (IOException e) {
+            // evicted by another build while we were reading it
+            return null;
+        }
+        entry.setLastModified(System.currentTimeMillis());
+        return VerificationResult.decode(content);
+    }
+
+    @Override
+    public void store(String key, VerificationResult result) throws IOException {
+        byte[] content = result.encode();
+        CacheIo.writeAtomically(entryFile(key).toPath(), content);
+
+        if (size.get() < 0) {
+            size.compareAndSet(-1, measure());
+        }
+        if (size.addAndGet(content.length) > maxBytes) {
+            trim();
+        }
+    }
+
+    /**
+     * Deletes the least recently used results until the directory is under 80% of its limit.
+     */
+    synchronized void trim() throws IOException {
+        List<File> entries = entries();
+        entries.sort(Comparator.comparingLong(File::lastModified));
+
+        long total = entries.stream().mapToLong(File::length).sum();
+        long target = maxBytes / 10 * 8;
+        for (File entry : entries) {
+            if (total <= target) {
+                break;
+            }
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+            }
+        }
+        size.set(total);
+    }
+
+    private long measure() throws IOException {
+        return entries().stream().mapToLong(File::length).sum();
+    }
+
+    private List<File> entries() throws IOException {
+        if (!directory.isDirectory()) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath(), 2)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, key.substring(0, 2) + "/" + key);
+    }
+}
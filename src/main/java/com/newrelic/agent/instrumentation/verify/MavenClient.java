@@ -6,6 +6,7 @@
 package com.newrelic.agent.instrumentation.verify;
 
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
@@ -23,46 +24,330 @@ import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
 import org.eclipse.aether.spi.connector.transport.TransporterFactory;
 import org.eclipse.aether.transport.file.FileTransporterFactory;
 import org.eclipse.aether.transport.http.HttpTransporterFactory;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
 import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionConstraint;
+import org.eclipse.aether.version.VersionScheme;
+import org.gradle.api.GradleException;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
-public class MavenClient {
-    public static MavenClient INSTANCE = new MavenClient();
+/**
+ * Resolves the versions available for a maven range.
+ *
+ * <p>A single {@link RepositorySystem} and session are created on the first lookup and reused for every
+ * lookup after that, so the transporters and their pooled HTTP connections are only set up once per build.
+ * Instances are safe to use from multiple threads. The build's instance is owned by {@link MavenClientService},
+ * which hands it to every project and closes it when the build finishes.</p>
+ *
+ * <p>The version list of each {@code group:name} is fetched once, and every range for that artifact is
+ * evaluated against it locally with the {@link GenericVersionScheme}, the same way the repository system
+ * would evaluate it. When a {@link MetadataCache} is set, the lists are read through it instead of the
+ * repository system.</p>
+ */
+public class MavenClient implements Closeable {
+    // The http transporter keeps its pooled connection managers in the session's repository cache under this key.
+    private static final String HTTP_TRANSPORT_STATE_KEY = "org.eclipse.aether.transport.http.GlobalState";
+
+    // Upper bound on concurrent lookups in a batch, so a module with many ranges doesn't flood the repositories.
+    static final int MAX_PARALLEL_LOOKUPS = 8;
+
+    private static final String ALL_VERSIONS = "(,)";
+
+    private final ConcurrentMap<String, Collection<String>> resolvedRanges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<List<Version>>> versionLists = new ConcurrentHashMap<>();
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder versionListFetchCount = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final ConcurrentLinkedQueue<Long> lookupDurations = new ConcurrentLinkedQueue<>();
+    private final VersionScheme versionScheme = new GenericVersionScheme();
+
+    private RepositorySystem system;
+    private RepositorySystemSession session;
+    private volatile MetadataCache metadataCache;
 
     public Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
-        Collection<Version> versions;
+        long start = System.nanoTime();
+        lookupCount.increment();
+        try {
+            String cacheKey = cacheKey(rangeDep, repositories);
+            Collection<String> cached = resolvedRanges.get(cacheKey);
+            if (cached != null) {
+                cacheHitCount.increment();
+                return cached;
+            }
+
+            Collection<Version> versions;
+            try {
+                versions = getVersions(rangeDep, repositories);
+            } catch (VersionRangeResolutionException | InvalidVersionSpecificationException | IOException e) {
+                // verifying no versions of the range would look like a pass
+                throw new GradleException("Unable to look up the versions of " + rangeDep, e);
+            }
+
+            String[] parts = rangeDep.split(":");
+            final String name = parts[0] + ":" + parts[1];
+
+            List<String> resolved = Collections.unmodifiableList(
+                    versions.stream().map(version -> name + ":" + version.toString()).collect(Collectors.toList()));
+            resolvedRanges.putIfAbsent(cacheKey, resolved);
+            return resolved;
+        } finally {
+            long duration = System.nanoTime() - start;
+            lookupNanos.add(duration);
+            lookupDurations.add(duration);
+        }
+    }
+
+    /**
+     * Resolves every range in one go, running up to {@link #MAX_PARALLEL_LOOKUPS} lookups at a time.
+     * The results are remembered, so later calls to {@link #resolveAvailableVersions(String, List)}
+     * for the same ranges don't go back to the repositories.
+     *
+     * @return the versions for each range, in the order the ranges were given
+     */
+    public Map<String, Collection<String>> resolveAvailableVersions(Collection<String> rangeDeps, List<RemoteRepository> repositories) {
+        Set<String> distinctRanges = new LinkedHashSet<>(rangeDeps);
+        Map<String, Collection<String>> results = new LinkedHashMap<>();
+        if (distinctRanges.size() <= 1) {
+            distinctRanges.forEach(rangeDep -> results.put(rangeDep, resolveAvailableVersions(rangeDep, repositories)));
+            return results;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(distinctRanges.size(), MAX_PARALLEL_LOOKUPS), runnable -> {
+            Thread thread = new Thread(runnable, "verify-instrumentation-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            versions = getVersions(rangeDep, repositories);
-        } catch (VersionRangeResolutionException ignored) {
-            return Collections.emptyList();
+            Map<String, CompletableFuture<Collection<String>>> futures = new LinkedHashMap<>();
+            for (String rangeDep : distinctRanges) {
+                futures.put(rangeDep, CompletableFuture.supplyAsync(() -> resolveAvailableVersions(rangeDep, repositories), executor));
+            }
+            try {
+                futures.forEach((rangeDep, future) -> results.put(rangeDep, future.join()));
+            } catch (CompletionException e) {
+                // a range whose versions couldn't be looked up has to fail rather than verify nothing
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
         }
+    }
+
+    /**
+     * Reads version lists through the given cache, or through the repository system if it is {@code null}.
+     */
+    void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * The number of calls to {@link #resolveAvailableVersions} since this client was last closed.
+     */
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
 
-        String[] parts = rangeDep.split(":");
-        final String name = parts[0] + ":" + parts[1];
+    /**
+     * The number of lookups that were answered without querying the repositories.
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.sum();
+    }
+
+    /**
+     * The number of {@code group:name} version lists fetched from the repositories or the metadata cache.
+     * Every range of an artifact is evaluated against its one list.
+     */
+    public long getVersionListFetchCount() {
+        return versionListFetchCount.sum();
+    }
+
+    /**
+     * The total time spent in {@link #resolveAvailableVersions}, summed across threads.
+     */
+    public long getLookupTime(TimeUnit unit) {
+        return unit.convert(lookupNanos.sum(), TimeUnit.NANOSECONDS);
+    }
 
-        return versions.stream().map(version -> name + ":" + version.toString()).collect(Collectors.toList());
+    /**
+     * How long each call to {@link #resolveAvailableVersions} took.
+     */
+    public List<Long> getLookupTimes(TimeUnit unit) {
+        return lookupDurations.stream().map(nanos -> unit.convert(nanos, TimeUnit.NANOSECONDS)).collect(Collectors.toList());
     }
 
-    private static Collection<Version> getVersions(String artifactName, List<RemoteRepository> repositories) throws VersionRangeResolutionException {
-        RepositorySystem system = newRepositorySystem();
+    /**
+     * Releases the pooled connections, forgets the resolved ranges, the version lists and the metadata cache,
+     * and resets the statistics.
+     * The client remains usable; the next lookup creates a fresh repository system and session.
+     */
+    @Override
+    public void close() throws IOException {
+        RepositorySystemSession closingSession;
+        synchronized (this) {
+            closingSession = session;
+            system = null;
+            session = null;
+        }
+
+        metadataCache = null;
+        resolvedRanges.clear();
+        versionLists.clear();
+        lookupCount.reset();
+        cacheHitCount.reset();
+        versionListFetchCount.reset();
+        lookupNanos.reset();
+        lookupDurations.clear();
+
+        if (closingSession != null && closingSession.getCache() != null) {
+            Object transportState = closingSession.getCache().get(closingSession, HTTP_TRANSPORT_STATE_KEY);
+            if (transportState instanceof Closeable) {
+                ((Closeable) transportState).close();
+            }
+        }
+    }
 
-        RepositorySystemSession session = newRepositorySystemSession(system);
+    private Collection<Version> getVersions(String artifactName, List<RemoteRepository> repositories)
+            throws VersionRangeResolutionException, InvalidVersionSpecificationException, IOException {
         Artifact artifact = new DefaultArtifact(artifactName);
+        VersionConstraint constraint = versionScheme.parseVersionConstraint(artifact.getVersion());
+        if (constraint.getRange() == null) {
+            // a plain version isn't looked up, just like VersionRangeRequest
+            return Collections.singletonList(constraint.getVersion());
+        }
+
+        return getVersionList(artifact.getGroupId(), artifact.getArtifactId(), repositories).stream()
+                .filter(constraint::containsVersion)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Every version of {@code group:name}, oldest first. The list is fetched once; concurrent callers
+     * asking for the same artifact wait for that fetch instead of starting their own.
+     */
+    private List<Version> getVersionList(String group, String name, List<RemoteRepository> repositories)
+            throws VersionRangeResolutionException, IOException {
+        String key = cacheKey(group + ":" + name, repositories);
+        CompletableFuture<List<Version>> versionList = new CompletableFuture<>();
+        CompletableFuture<List<Version>> existing = versionLists.putIfAbsent(key, versionList);
+        if (existing == null) {
+            try {
+                versionListFetchCount.increment();
+                versionList.complete(fetchVersionList(group, name, repositories));
+                return versionList.join();
+            } catch (VersionRangeResolutionException | IOException | RuntimeException e) {
+                // failures aren't remembered, the next lookup tries again
+                versionLists.remove(key, versionList);
+                versionList.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof VersionRangeResolutionException) {
+                throw (VersionRangeResolutionException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
 
+    private List<Version> fetchVersionList(String group, String name, List<RemoteRepository> repositories)
+            throws VersionRangeResolutionException, IOException {
+        MetadataCache metadataCache = this.metadataCache;
+        if (metadataCache != null) {
+            return fetchVersionListFromMetadata(metadataCache, group, name, repositories);
+        }
+
+        RepositorySystem system;
+        RepositorySystemSession session;
+        synchronized (this) {
+            if (this.system == null) {
+                this.system = newRepositorySystem();
+                this.session = newRepositorySystemSession(this.system);
+            }
+            system = this.system;
+            session = this.session;
+        }
+
+        // "(,)" rather than "[0,)", so that versions sorting below 0 (like 0-alpha) are kept
         VersionRangeRequest rangeRequest = new VersionRangeRequest()
-                .setArtifact(artifact)
+                .setArtifact(new DefaultArtifact(group, name, "jar", ALL_VERSIONS))
                 .setRepositories(repositories);
 
         VersionRangeResult rangeResult = system.resolveVersionRange(session, rangeRequest);
 
-        return rangeResult.getVersions();
+        return Collections.unmodifiableList(new ArrayList<>(rangeResult.getVersions()));
+    }
+
+    private List<Version> fetchVersionListFromMetadata(MetadataCache metadataCache, String group, String name, List<RemoteRepository> repositories)
+            throws IOException {
+        SortedSet<Version> versions = new TreeSet<>();
+        IOException failure = null;
+        for (RemoteRepository repository : repositories) {
+            try {
+                for (String version : metadataCache.getVersions(repository.getUrl(), group, name)) {
+                    versions.add(versionScheme.parseVersion(version));
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InvalidVersionSpecificationException e) {
+                failure = new IOException("Invalid version in metadata for " + group + ":" + name + " from " + repository.getUrl(), e);
+            }
+        }
+
+        if (versions.isEmpty() && failure != null) {
+            throw failure;
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(versions));
     }
 
-    private static RepositorySystem newRepositorySystem() {
+    private static String cacheKey(String rangeDep, List<RemoteRepository> repositories) {
+        return repositories.stream()
+                .map(RemoteRepository::getUrl)
+                .collect(Collectors.joining(",", rangeDep + "@", ""));
+    }
+
+    static RepositorySystem newRepositorySystem() {
         DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator()
                 .addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class)
                 .addService(TransporterFactory.class, FileTransporterFactory.class)
@@ -85,6 +370,13 @@ public class MavenClient {
 
         LocalRepositoryManager localRepositoryManager = system.newLocalRepositoryManager(session, localRepo);
 
-        return session.setLocalRepositoryManager(localRepositoryManager);
+        session.setLocalRepositoryManager(localRepositoryManager);
+
+        // without a cache the http transporter keeps no global state, and every lookup opens its own connections
+        session.setCache(new DefaultRepositoryCache());
+
+        // the session is shared between threads, so lock it down before handing it out
+        session.setReadOnly();
+        return session;
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the {@link MavenClient} used for range lookups for the duration of a build. Every project
+ * that applies the plugin shares this service, so the repository system, session and HTTP connection
+ * pool are set up once and released when the build finishes.
+ *
+ * <p>If a metadata cache directory is configured, version lists are kept there between builds;
+ * see {@link MetadataCache}.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class MavenClientService implements BuildService<MavenClientService.Parameters>, AutoCloseable {
+    static final String NAME = "verifyInstrumentationMavenClient";
+
+    private static final Logger logger = Logging.getLogger(MavenClientService.class);
+
+    private final MavenClient client = new MavenClient();
+
+    public interface Parameters extends BuildServiceParameters {
+        DirectoryProperty getMetadataCacheDir();
+
+        Property<Long> getMetadataTtlMinutes();
+
+        Property<Boolean> getOffline();
+    }
+
+    public MavenClientService() {
+        Parameters parameters = getParameters();
+        if (parameters.getMetadataCacheDir().isPresent()) {
+            client.setMetadataCache(new MetadataCache(
+                    parameters.getMetadataCacheDir().get().getAsFile(),
+                    Duration.ofMinutes(parameters.getMetadataTtlMinutes().getOrElse(MetadataCache.DEFAULT_TTL_MINUTES)),
+                    parameters.getOffline().getOrElse(false)));
+        }
+    }
+
+    public MavenClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (client.getLookupCount() > 0) {
+            logger.info("Resolved {} version ranges ({} from cache) against {} version lists in {} ms",
+                    client.getLookupCount(), client.getCacheHitCount(), client.getVersionListFetchCount(),
+                    client.getLookupTime(TimeUnit.MILLISECONDS));
+        }
+        client.close();
+    }
+}
@@ -20,6 +20,10 @@ class MavenProjectUtil {
     static List<RemoteRepository> getMavenRepositories(Project project) {
         List<RemoteRepository> mavenRepositories = new ArrayList<>(project.getRepositories().size());
         for (ArtifactRepository repo : project.getRepositories()) {
+            if (VerificationPlugin.PREFETCH_REPOSITORY_NAME.equals(repo.getName())) {
+                // our own copy of what the other repositories have
+                continue;
+            }
             if (repo instanceof MavenArtifactRepository) {
                 MavenArtifactRepository mavenRepo = (MavenArtifactRepository) repo;
                 project.getLogger().info("Using maven repo to fetch verifier sources: " + mavenRepo.getUrl());
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the reports of the shards of a sharded build, with {@code -PverifierShardReports=<paths>}, into one
+ * summary, and their durations into the durations file the next sharded build is balanced by.
+ *
+ * <p>Each path is a JSON lines report, or a directory that is searched for them, like the shards' build
+ * directories.</p>
+ */
+public class MergeShardsTask extends DefaultTask {
+    static final String REPORT_LOG_NAME = "verification.jsonl";
+
+    private final List<File> reports = new ArrayList<>();
+    private File summaryFile;
+    private File durationsFile;
+
+    @TaskAction
+    public void merge() throws IOException {
+        VerificationSummary summary = new VerificationSummary();
+        VerificationDurations durations = VerificationDurations.read(durationsFile);
+        for (File reportLog : reportLogs()) {
+            for (String line : Files.readAllLines(reportLog.toPath(), StandardCharsets.UTF_8)) {
+                summary.addReportLine(line);
+                durations.addReportLine(line);
+            }
+        }
+        if (summary.isEmpty()) {
+            throw new GradleException("No verification reports in " + reports);
+        }
+
+        String text = summary.format();
+        getLogger().lifecycle(text);
+        Files.createDirectories(summaryFile.getParentFile().toPath());
+        Files.write(summaryFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        durations.save();
+    }
+
+    private List<File> reportLogs() throws IOException {
+        List<File> reportLogs = new ArrayList<>();
+        for (File report : reports) {
+            if (report.isFile()) {
+                reportLogs.add(report);
+            } else if (report.isDirectory()) {
+                try (Stream<Path> files = Files.walk(report.toPath())) {
+                    reportLogs.addAll(files.filter(path -> path.getFileName().toString().equals(REPORT_LOG_NAME))
+                            .map(Path::toFile)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            }
+        }
+        return reportLogs;
+    }
+
+    /**
+     * The shards' reports, or directories with them.
+     */
+    @Internal
+    public List<File> getReports() {
+        return reports;
+    }
+
+    public void setSummaryFile(File summaryFile) {
+        this.summaryFile = summaryFile;
+    }
+
+    @Internal
+    public File getSummaryFile() {
+        return summaryFile;
+    }
+
+    public void setDurationsFile(File durationsFile) {
+        this.durationsFile = durationsFile;
+    }
+
+    @Internal
+    public File getDurationsFile() {
+        return durationsFile;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.GradleException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Keeps the version list from each repository's {@code maven-metadata.xml} on disk, keyed by repository url
+ * and {@code group:name}.
+ *
+ * <p>Entries younger than the TTL are served without touching the network. Older entries are revalidated with
+ * a conditional request ({@code If-None-Match} / {@code If-Modified-Since}), so an unchanged list costs a 304
+ * instead of a download. In offline mode only the cache is consulted, whatever the age of the entry.</p>
+ *
+ * <p>Repositories on the local file system are read directly and never cached.</p>
+ */
+class MetadataCache {
+    static final long DEFAULT_TTL_MINUTES = 60;
+
+    private static final String VERSIONS = "versions";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String FETCHED = "fetched";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final File cacheDir;
+    private final Duration ttl;
+    private final boolean offline;
+
+    MetadataCache(File cacheDir, Duration ttl, boolean offline) {
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.offline = offline;
+    }
+
+    /**
+     * Returns the versions the repository publishes for {@code group:name}, or an empty list if it publishes none.
+     *
+     * @throws IOException if the metadata could not be read and there is no cached copy to fall back on
+     * @throws GradleException if Gradle is offline and there is no cached copy
+     */
+    List<String> getVersions(String repositoryUrl, String group, String name) throws IOException {
+        URI metadataUri = metadataUri(repositoryUrl, group, name);
+        if ("file".equals(metadataUri.getScheme())) {
+            File metadataFile = new File(metadataUri);
+            if (!metadataFile.isFile()) {
+                return Collections.emptyList();
+            }
+            try (InputStream input = Files.newInputStream(metadataFile.toPath())) {
+                return parseVersions(input);
+            }
+        }
+
+        File entryFile = entryFile(repositoryUrl, group, name);
+        Properties entry = readEntry(entryFile);
+
+        if (entry != null && (offline || !isExpired(entry))) {
+            return versionsOf(entry);
+        }
+        if (offline) {
+            // unchecked, so the range fails the build instead of quietly verifying no versions
+            throw new GradleException("No cached metadata for " + group + ":" + name + " from " + repositoryUrl
+                    + " and Gradle is offline; run the build once without --offline to cache it");
+        }
+
+        try {
+            Properties refreshed = fetch(metadataUri.toURL(), entry);
+            writeEntry(entryFile, refreshed);
+            return versionsOf(refreshed);
+        } catch (IOException e) {
+            if (entry != null) {
+                // a stale list beats no list at all
+                return versionsOf(entry);
+            }
+            throw e;
+        }
+    }
+
+    private Properties fetch(URL metadataUrl, Properties cached) throws IOException {
+        URLConnection connection = metadataUrl.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (cached != null) {
+            if (cached.getProperty(ETAG) != null) {
+                connection.setRequestProperty("If-None-Match", cached.getProperty(ETAG));
+            }
+            if (cached.getProperty(LAST_MODIFIED) != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.getProperty(LAST_MODIFIED));
+            }
+        }
+
+        Properties entry = new Properties();
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection http = (HttpURLConnection) connection;
+            int status = http.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                entry.putAll(cached);
+                entry.setProperty(FETCHED, Long.toString(System.currentTimeMillis()));
+                CacheIo.release(http);
+                return entry;
+            }
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                // remember that the repository has nothing, so we don't ask again until the entry expires
+                entry.setProperty(VERSIONS, "");
+                entry.setProperty(FETCHED, Long.toString(System.currentTimeMillis()));
+                CacheIo.release(http);
+                return entry;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                CacheIo.release(http);
+                throw new IOException("Unexpected response " + status + " for " + metadataUrl);
+            }
+        }
+
+        List<String> versions;
+        try (InputStream input = connection.getInputStream()) {
+            versions = parseVersions(input);
+        }
+
+        entry.setProperty(VERSIONS, String.join(",", versions));
+        entry.setProperty(FETCHED, Long.toString(System.currentTimeMillis()));
+        if (connection.getHeaderField("ETag") != null) {
+            entry.setProperty(ETAG, connection.getHeaderField("ETag"));
+        }
+        if (connection.getHeaderField("Last-Modified") != null) {
+            entry.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+        }
+        return entry;
+    }
+
+    private boolean isExpired(Properties entry) {
+        long fetched = Long.parseLong(entry.getProperty(FETCHED, "0"));
+        return System.currentTimeMillis() - fetched >= ttl.toMillis();
+    }
+
+    private File entryFile(String repositoryUrl, String group, String name) {
+        String repositoryKey = Hashing.sha256().hashString(repositoryUrl, StandardCharsets.UTF_8).toString();
+        return new File(cacheDir, repositoryKey + "/" + group + "/" + name + ".properties");
+    }
+
+    private static Properties readEntry(File entryFile) {
+        if (!entryFile.isFile()) {
+            return null;
+        }
+        Properties entry = new Properties();
+        try (Reader reader = Files.newBufferedReader(entryFile.toPath(), StandardCharsets.UTF_8)) {
+            entry.load(reader);
+        } catch (IOException ignored) {
+            return null;
+        }
+        return entry.getProperty(VERSIONS) == null ? null : entry;
+    }
+
+    private static void writeEntry(File entryFile, Properties entry) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(content, StandardCharsets.UTF_8)) {
+            entry.store(writer, null);
+        }
+        CacheIo.writeAtomically(entryFile.toPath(), content.toByteArray());
+    }
+
+    private static List<String> versionsOf(Properties entry) {
+        String versions = entry.getProperty(VERSIONS, "");
+        return versions.isEmpty() ? Collections.emptyList() : Arrays.asList(versions.split(","));
+    }
+
+    private static URI metadataUri(String repositoryUrl, String group, String name) {
+        String base = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+        return URI.create(base + group.replace('.', '/') + "/" + name + "/maven-metadata.xml");
+    }
+
+    private static List<String> parseVersions(InputStream input) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(input);
+
+            NodeList versionNodes = document.getElementsByTagName("version");
+            List<String> versions = new ArrayList<>(versionNodes.getLength());
+            for (int i = 0; i < versionNodes.getLength(); i++) {
+                // the top level <version> of plugin metadata isn't part of <versions>
+                if ("versions".equals(versionNodes.item(i).getParentNode().getNodeName())) {
+                    versions.add(versionNodes.item(i).getTextContent().trim());
+                }
+            }
+            return versions;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Unable to parse maven metadata", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarFile;
+import java.util.zip.ZipException;
+
+/**
+ * A classpath jar, held open.
+ *
+ * <p>While the jar is held open the JDK keeps its parsed central directory, and shares it with every other
+ * {@code JarFile} opened on the same path, such as the ones the verifier's class loader opens. So a jar that's
+ * on the classpath of many versions is only scanned once.</p>
+ *
+ * <p>Only the end of the jar is memory mapped when it's opened, to find how large the central directory the JDK
+ * keeps is.</p>
+ */
+final class OpenJar implements Closeable {
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int MAX_COMMENT = 0xffff;
+    private static final long ZIP64_MAGIC = 0xffffffffL;
+
+    private final File jar;
+    private final long retainedBytes;
+    private final JarFile openJar;
+
+    private OpenJar(File jar, long retainedBytes, JarFile openJar) {
+        this.jar = jar;
+        this.retainedBytes = retainedBytes;
+        this.openJar = openJar;
+    }
+
+    /**
+     * Finds the jar's central directory and opens the jar.
+     *
+     * @throws ZipException if the file isn't a jar
+     */
+    static OpenJar open(File jar) throws IOException {
+        long retainedBytes;
+        try (FileChannel channel = FileChannel.open(jar.toPath(), StandardOpenOption.READ)) {
+            retainedBytes = findCentralDirectory(channel, jar)[1];
+        }
+        // opened once the central directory is found, so a file that isn't a jar fails before anything is held open
+        JarFile openJar = new JarFile(jar);
+        return new OpenJar(jar, retainedBytes, openJar);
+    }
+
+    File getJar() {
+        return jar;
+    }
+
+    /**
+     * Roughly how much memory the JDK's copy of the central directory takes while the jar is open.
+     */
+    long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        openJar.close();
+    }
+
+    /**
+     * @return the central directory's offset and size
+     */
+    private static long[] findCentralDirectory(FileChannel channel, File jar) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_SIZE) {
+            throw new ZipException("Not a jar: " + jar);
+        }
+
+        // the end record is last, unless the archive has a comment after it
+        long tailStart = Math.max(0, fileSize - END_SIZE - MAX_COMMENT - ZIP64_LOCATOR_SIZE);
+        MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, fileSize - tailStart);
+        tail.order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int end = tail.limit() - END_SIZE; end >= 0; end--) {
+            if (tail.getInt(end) != END_SIGNATURE) {
+                continue;
+            }
+            long size = Integer.toUnsignedLong(tail.getInt(end + 12));
+            long offset = Integer.toUnsignedLong(tail.getInt(end + 16));
+            if (offset == ZIP64_MAGIC || size == ZIP64_MAGIC) {
+                return findZip64CentralDirectory(channel, tail, end, jar);
+            }
+            if (offset + size <= tailStart + end) {
+                return new long[] { offset, size };
+            }
+        }
+        throw new ZipException("No central directory in " + jar);
+    }
+
+    private static long[] findZip64CentralDirectory(FileChannel channel, MappedByteBuffer tail, int end, File jar) throws IOException {
+        int locator = end - ZIP64_LOCATOR_SIZE;
+        if (locator < 0 || tail.getInt(locator) != ZIP64_LOCATOR_SIGNATURE) {
+            throw new ZipException("Missing zip64 end locator in " + jar);
+        }
+        long zip64End = tail.getLong(locator + 8);
+        MappedByteBuffer record = channel.map(FileChannel.MapMode.READ_ONLY, zip64End, 56);
+        record.order(ByteOrder.LITTLE_ENDIAN);
+        if (record.getInt(0) != ZIP64_END_SIGNATURE) {
+            throw new ZipException("Invalid zip64 end record in " + jar);
+        }
+        return new long[] { record.getLong(48), record.getLong(40) };
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The jars on verification classpaths that the worker holds open, so that the jars consecutive versions share
+ * are scanned once rather than once per version.
+ *
+ * <p>{@link #classpath} opens each jar on a classpath and hands every one of them to the verifier, by path and in
+ * the same order. The verifier's class loader then reuses the central directory of the open jar. Jars are keyed by
+ * path, size and modification time, which is also what the JDK shares an open jar by, so a jar that's replaced
+ * is opened again. {@link AgentVerifierService} closes them when the build finishes.</p>
+ *
+ * <p>The open jars are bounded by the memory their central directories take. When that's over the limit, the
+ * least recently used jars are closed.</p>
+ */
+final class OpenJars {
+    static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private static final Logger logger = Logging.getLogger(OpenJars.class);
+
+    // access ordered, so iteration starts at the least recently used jar
+    private static final Map<String, OpenJar> jars = new LinkedHashMap<>(16, 0.75f, true);
+    private static final LongAdder reused = new LongAdder();
+    private static final LongAdder opened = new LongAdder();
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long retainedBytes;
+
+    /**
+     * The classpath for the verifier: the same jars, in the same order, each opened on the way. Files that can't
+     * be opened, like a missing jar or a directory, are passed through too.
+     */
+    static Classpath classpath(List<String> classpathJars) {
+        Classpath classpath = new Classpath(classpathJars.size());
+        for (String path : classpathJars) {
+            open(new File(path), classpath);
+            classpath.jars.add(path);
+        }
+        return classpath;
+    }
+
+    /**
+     * The open jar, opened if the worker doesn't already hold it open.
+     *
+     * @return null if the file isn't a readable jar
+     */
+    static OpenJar open(File jar) {
+        return open(jar, null);
+    }
+
+    private static OpenJar open(File jar, Classpath classpath) {
+        if (!jar.isFile()) {
+            return null;
+        }
+        String key = jar.getAbsolutePath() + "|" + jar.length() + "|" + jar.lastModified();
+
+        OpenJar held;
+        synchronized (jars) {
+            held = jars.get(key);
+        }
+        if (held != null) {
+            return reuse(held, classpath);
+        }
+
+        // opened without holding the map, so other verifications aren't held up by this jar
+        OpenJar opened;
+        try {
+            opened = OpenJar.open(jar);
+        } catch (IOException e) {
+            logger.debug("Unable to open " + jar + ": " + e);
+            return null;
+        }
+        synchronized (jars) {
+            held = jars.get(key);
+            if (held == null) {
+                OpenJars.opened.increment();
+                if (classpath != null) {
+                    classpath.opened++;
+                }
+                jars.put(key, opened);
+                retainedBytes += opened.getRetainedBytes();
+                evict(opened);
+                return opened;
+            }
+        }
+        // another verification opened the same jar first
+        close(opened);
+        return reuse(held, classpath);
+    }
+
+    private static OpenJar reuse(OpenJar jar, Classpath classpath) {
+        reused.increment();
+        if (classpath != null) {
+            classpath.reused++;
+        }
+        return jar;
+    }
+
+    /**
+     * Drops the least recently used jars until the open jars fit, but never the one just added.
+     */
+    private static void evict(OpenJar added) {
+        Iterator<OpenJar> leastRecentlyUsed = jars.values().iterator();
+        while (retainedBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            OpenJar jar = leastRecentlyUsed.next();
+            if (jar == added) {
+                continue;
+            }
+            leastRecentlyUsed.remove();
+            retainedBytes -= jar.getRetainedBytes();
+            close(jar);
+        }
+    }
+
+    private static void close(OpenJar jar) {
+        try {
+            jar.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close " + jar.getJar() + ": " + e);
+        }
+    }
+
+    /**
+     * Jars that were already open, across the worker's verifications.
+     */
+    static long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * Jars that had to be opened, across the worker's verifications.
+     */
+    static long getOpened() {
+        return opened.sum();
+    }
+
+    static long getRetainedBytes() {
+        synchronized (jars) {
+            return retainedBytes;
+        }
+    }
+
+    static void setMaxBytes(long maxBytes) {
+        synchronized (jars) {
+            OpenJars.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * Closes every open jar and resets the counters. The next verification opens the jars again.
+     */
+    static void closeAll() throws IOException {
+        List<OpenJar> closing;
+        synchronized (jars) {
+            closing = new ArrayList<>(jars.values());
+            jars.clear();
+            retainedBytes = 0;
+            maxBytes = DEFAULT_MAX_BYTES;
+            reused.reset();
+            opened.reset();
+        }
+
+        IOException failure = null;
+        for (OpenJar jar : closing) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A classpath for the verifier, and how many of its jars were already jar.
+     */
+    static final class Classpath {
+        private final List<String> jars;
+        private int reused;
+        private int opened;
+
+        private Classpath(int size) {
+            jars = new ArrayList<>(size);
+        }
+
+        List<String> getJars() {
+            return jars;
+        }
+
+        int getReused() {
+            return reused;
+        }
+
+        int getOpened() {
+            return opened;
+        }
+    }
+
+    private OpenJars() {}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Owns the {@link ArtifactPrefetcher} shared by every project's prefetch task, so the connections to each
+ * repository, and the threads downloading through them, are limited across the whole build.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class PrefetchService implements BuildService<PrefetchService.Parameters>, AutoCloseable {
+    static final String NAME = "verifyInstrumentationPrefetch";
+
+    private final ArtifactPrefetcher prefetcher;
+
+    public interface Parameters extends BuildServiceParameters {
+        DirectoryProperty getRepositoryDir();
+
+        Property<Integer> getConnections();
+    }
+
+    public PrefetchService() {
+        prefetcher = new ArtifactPrefetcher(getParameters().getRepositoryDir().get().getAsFile(), getParameters().getConnections().get());
+    }
+
+    public ArtifactPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    @Override
+    public void close() {
+        prefetcher.close();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downloads the artifacts of every version in the verification matrix concurrently, ahead of the
+ * verification tasks, into the repository that their configurations check first. The connections
+ * to each repository are limited by the {@link PrefetchService}, across every project's prefetch task.
+ */
+public class PrefetchTask extends DefaultTask {
+    private final List<List<String>> dependencySets = new ArrayList<>();
+    private final List<String> repositoryUrls = new ArrayList<>();
+    private int connections;
+    private Provider<PrefetchService> prefetchService;
+
+    @TaskAction
+    public void prefetch() {
+        List<RemoteRepository> repositories = new ArrayList<>(repositoryUrls.size());
+        for (String url : repositoryUrls) {
+            repositories.add(new RemoteRepository.Builder(repositories.size() + "", "default", url).build());
+        }
+
+        long start = System.currentTimeMillis();
+        int failures = prefetchService.get().getPrefetcher().prefetch(dependencySets, repositories);
+        getLogger().info("Prefetched {} dependency sets ({} incomplete) with {} connections in {} ms",
+                dependencySets.size(), failures, connections, System.currentTimeMillis() - start);
+    }
+
+    @Input
+    public List<List<String>> getDependencySets() {
+        return dependencySets;
+    }
+
+    @Input
+    public List<String> getRepositoryUrls() {
+        return repositoryUrls;
+    }
+
+    @Input
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * The service whose prefetcher does the downloading, shared with every other project's prefetch task.
+     */
+    public void setPrefetchService(Provider<PrefetchService> prefetchService) {
+        this.prefetchService = prefetchService;
+    }
+
+    @Internal
+    public Provider<PrefetchService> getPrefetchService() {
+        return prefetchService;
+    }
+}
@@ -5,68 +5,108 @@
 
 package com.newrelic.agent.instrumentation.verify;
 
-import com.google.common.collect.ImmutableMap;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.gradle.api.GradleException;
 import org.gradle.api.GradleScriptException;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.UnresolvedDependency;
 import org.gradle.api.file.RegularFile;
-import org.gradle.api.specs.Specs;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.slf4j.Logger;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.gradle.api.Task.TASK_TYPE;
-
 public class ProjectTaskFactory {
     private static final String CLASSPATH_DEP_NAME = "classpath";
     private final Logger logger;
     private final File passesFileDir;
+    private final MavenClient mavenClient;
 
     private Project project;
-    private Collection<Pattern> excludeVersions;
+    private final ExclusionMatcher exclusions;
     private File passesFile;
     private List<RemoteRepository> mavenRepositories;
+    // looked up once per project rather than once per version
+    private File agentJar;
+    private RegularFile instrumentationJar;
+    // the coordinates each registered task's configuration resolves, for the prefetch
+    private final Map<String, List<String>> dependencySets = new LinkedHashMap<>();
+    // the parameters of every registered task, by task name, to order them by
+    private final Map<String, VerifyParameters> registeredVersions = new LinkedHashMap<>();
+    // what each registered task is handed, by task name, to verify the versions without their tasks
+    private final Map<String, RegisteredVersion> registrations = new LinkedHashMap<>();
+    private final List<Long> configurationTimes = new ArrayList<>();
+    private TaskProvider<RecordResultsTask> recordResultsTask;
+    private boolean incremental;
+    private File failFastFile;
+    private VerificationState verificationState;
 
     public void setPassesFile(String passesFileName) {
         this.passesFile = passesFileName == null || passesFileName.isEmpty() ? null : project.file(passesFileName);
     }
 
+    /**
+     * Skip the versions that already passed against the same agent and instrumentation jar.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * The marker that stops the rest of the matrix after the first unexpected result, or null to verify everything.
+     * The tasks themselves are skipped by {@link FailFastService.NotStopped}.
+     */
+    public void setFailFastFile(File failFastFile) {
+        this.failFastFile = failFastFile;
+    }
+
+    /**
+     * @param excludeVersions regexes, each matched against the whole {@code group:name:version}
+     */
+    public ProjectTaskFactory(@Nonnull Project project, @Nonnull Collection<String> excludeVersions, Logger logger, File passesFileDir, @Nonnull MavenClient mavenClient) {
+        this(project, ExclusionMatcher.ofRegexes(requireExcludes(excludeVersions)), logger, passesFileDir, mavenClient);
+    }
+
     @SuppressWarnings("ConstantConditions") // I don't trust that the annotations will actually be respected.
-    public ProjectTaskFactory(@Nonnull Project project, @Nonnull Collection<String> excludeVersions, Logger logger, File passesFileDir) {
+    ProjectTaskFactory(@Nonnull Project project, @Nonnull ExclusionMatcher exclusions, Logger logger, File passesFileDir, @Nonnull MavenClient mavenClient) {
         if (project == null) {
             throw new NullPointerException("project must not be null");
         }
-        if (excludeVersions == null) {
-            throw new NullPointerException("excludeVersions must not be null");
+        if (exclusions == null) {
+            throw new NullPointerException("exclusions must not be null");
         }
 
         this.logger = logger;
         this.project = project;
-        this.excludeVersions = excludeVersions.stream().map(Pattern::compile).collect(Collectors.toList());
+        this.exclusions = exclusions;
         this.passesFileDir = passesFileDir;
+        this.mavenClient = mavenClient;
 
         mavenRepositories = MavenProjectUtil.getMavenRepositories(project);
     }
 
-    Stream<? extends Task> buildClasspathTasks() {
+    Stream<TaskProvider<VerifyTask>> buildClasspathTasks() {
         Collection<Dependency> dependencies =
                         project.getConfigurations().getByName("implementation").getAllDependencies();
 
@@ -79,20 +119,21 @@ public class ProjectTaskFactory {
      * <p>NOTE: There is no checking that you don't have the same version in
      * "passes" and "fails". However, one of the tasks will fail.</p>
      */
-    Stream<Task> buildExplicitPassFailTasks(VerifyInstrumentationOptions verifyOptions) {
+    Stream<TaskProvider<VerifyTask>> buildExplicitPassFailTasks(VerifyInstrumentationOptions verifyOptions) {
         return Stream.concat(
-                expandMapToTasks(verifyOptions.passes(), true),
-                expandMapToTasks(verifyOptions.fails(), false)
+                expandMapToTasks(verifyOptions.passes(), true, version -> {}),
+                expandMapToTasks(verifyOptions.fails(), false, version -> {})
         );
     }
 
-    private Stream<VerifyTask> expandMapToTasks(Map<String, Collection<String>> entries, boolean shouldSuccessfullyApply) {
+    private Stream<TaskProvider<VerifyTask>> expandMapToTasks(Map<String, Collection<String>> entries, boolean shouldSuccessfullyApply, Consumer<String> taskAdded) {
         return entries.entrySet().stream()
                 .peek(entry -> logger.info("Resolving range: " + entry.getKey()))
                 .flatMap(entry ->
-                        MavenClient.INSTANCE.resolveAvailableVersions(entry.getKey(), mavenRepositories).stream()
+                        mavenClient.resolveAvailableVersions(entry.getKey(), mavenRepositories).stream()
                                 .peek(version -> logger.info("--Resolving: " + version))
-                                .flatMap(version -> addVerifyTask(version, shouldSuccessfullyApply, entry.getValue(), entry.getKey())));
+                                .flatMap(version -> addVerifyTask(version, shouldSuccessfullyApply, entry.getValue(), entry.getKey())
+                                        .peek(task -> taskAdded.accept(version))));
     }
 
     /**
@@ -108,19 +149,17 @@ public class ProjectTaskFactory {
      * <p>The lowest level of precedence of task is the implicit fail. Versions in the same group
      * and name as, but not included in, the "passesOnly" will be checked for failure.</p>
      */
-    Stream<Task> buildTasksForPassesOnly(VerifyInstrumentationOptions verifyOptions) {
+    Stream<TaskProvider<VerifyTask>> buildTasksForPassesOnly(VerifyInstrumentationOptions verifyOptions) {
         final Set<String> passOnlyVersions = new HashSet<>();
         final Set<String> explicitFails = new HashSet<>();
 
         // first build the explicit failures ... these take precedence.
-        Stream<VerifyTask> explicitFailStream = expandMapToTasks(verifyOptions.fails(), false);
-        Collection<Task> explicitTasks = explicitFailStream
-                .peek(task -> explicitFails.add(task.getParameters().getOriginalDependency()))
-                .collect(Collectors.toSet());
+        Collection<TaskProvider<VerifyTask>> explicitTasks = expandMapToTasks(verifyOptions.fails(), false, explicitFails::add)
+                .collect(Collectors.toList());
 
         // add all the passes. We need to collect() so that the stream runs and we can see if we got results.
-        Collection<Task> passOnlyTasks = verifyOptions.passesOnly().entrySet().stream().flatMap(entry ->
-                MavenClient.INSTANCE.resolveAvailableVersions(entry.getKey(), mavenRepositories).stream()
+        Collection<TaskProvider<VerifyTask>> passOnlyTasks = verifyOptions.passesOnly().entrySet().stream().flatMap(entry ->
+                mavenClient.resolveAvailableVersions(entry.getKey(), mavenRepositories).stream()
                         .filter(version -> {
                             if (explicitFails.contains(version)) {
                                 logger.info(
@@ -132,8 +171,8 @@ public class ProjectTaskFactory {
                             logger.info("Resolving: {}", version);
                             return true;
                         })
-                        .flatMap(version -> addVerifyTask(version, true, entry.getValue(), entry.getKey()))
-                        .peek(task -> passOnlyVersions.add(task.getParameters().getOriginalDependency()))
+                        .flatMap(version -> addVerifyTask(version, true, entry.getValue(), entry.getKey())
+                                .peek(task -> passOnlyVersions.add(version)))
         ).collect(Collectors.toList());
 
         if (passOnlyVersions.size() == 0) {
@@ -142,12 +181,12 @@ public class ProjectTaskFactory {
         }
 
         explicitTasks.addAll(passOnlyTasks);
-        Stream<Task> failTaskStream = buildImplicitFailTasks(passOnlyVersions, explicitFails);
+        Stream<TaskProvider<VerifyTask>> failTaskStream = buildImplicitFailTasks(passOnlyVersions, explicitFails);
 
         return Stream.concat(explicitTasks.stream(), failTaskStream);
     }
 
-    private Stream<Task> buildImplicitFailTasks(Set<String> passOnlyVersions, Set<String> explicitFails) {
+    private Stream<TaskProvider<VerifyTask>> buildImplicitFailTasks(Set<String> passOnlyVersions, Set<String> explicitFails) {
         // each passesOnly could specify a unique group:name combo. Scala modules are notorious for that.
         // To preserve semantics, we want to make sure we generate implicit fail tasks for all the
         // unique group:name combos.
@@ -161,63 +200,215 @@ public class ProjectTaskFactory {
                 .flatMap(fullRange -> buildImplicitFailTasksForRange(fullRange, passOnlyVersions, explicitFails));
     }
 
-    private Stream<Task> buildImplicitFailTasksForRange(String fullRange, Set<String> passOnlyVersions, Set<String> explicitFails) {
-        return MavenClient.INSTANCE.resolveAvailableVersions(fullRange, mavenRepositories).stream()
+    private Stream<TaskProvider<VerifyTask>> buildImplicitFailTasksForRange(String fullRange, Set<String> passOnlyVersions, Set<String> explicitFails) {
+        return mavenClient.resolveAvailableVersions(fullRange, mavenRepositories).stream()
                 .filter(version -> !passOnlyVersions.contains(version) && !explicitFails.contains(version))
                 .peek(version -> logger.info("Resolving: {}", version))
                 .flatMap(version -> addVerifyTask(version, false, Collections.emptyList(), fullRange));
     }
 
-    private Stream<VerifyTask> addVerifyTask(final String dep, boolean shouldSuccessfullyApply, Collection<?> compileDeps, String specifiedRange) {
-        boolean isExcluded = excludeVersions.stream().anyMatch(excludePattern -> excludePattern.matcher(dep).matches());
+    /**
+     * Registers the verification task for one version. Nothing is resolved or downloaded here; the
+     * task's classpath is a lenient view of its configuration, resolved only if the task runs.
+     */
+    private Stream<TaskProvider<VerifyTask>> addVerifyTask(final String dep, boolean shouldSuccessfullyApply, Collection<?> compileDeps, String specifiedRange) {
+        long start = System.nanoTime();
+        try {
+            return registerVerifyTask(dep, shouldSuccessfullyApply, compileDeps, specifiedRange);
+        } finally {
+            configurationTimes.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
 
-        if (isExcluded) {
+    private Stream<TaskProvider<VerifyTask>> registerVerifyTask(final String dep, boolean shouldSuccessfullyApply, Collection<?> compileDeps, String specifiedRange) {
+        if (isExcluded(dep)) {
+            logger.info("Excluding artifact: " + dep);
             return Stream.empty();
         }
 
         final String configName = configName(dep);
-        Configuration config = project.getConfigurations().create(configName);
-
+        ClasspathTimer classpathTimer = new ClasspathTimer();
+        // only created, and its dependencies only added, if something asks for the classpath
+        NamedDomainObjectProvider<Configuration> config = project.getConfigurations().register(configName, configuration -> {
+            if (!dep.equals(CLASSPATH_DEP_NAME)) {
+                configuration.getDependencies().add(project.getDependencies().create(dep));
+            }
+            compileDeps.forEach(compileDep -> configuration.getDependencies().add(project.getDependencies().create(compileDep)));
+            classpathTimer.attach(configuration);
+        });
+
+        List<String> dependencySet = new ArrayList<>();
         if (!dep.equals(CLASSPATH_DEP_NAME)) {
-            project.getDependencies().add(configName, dep);
+            dependencySet.add(dep);
         }
-        compileDeps.forEach(compileDep -> project.getDependencies().add(configName, compileDep));
+        compileDeps.forEach(compileDep -> coordinatesOf(compileDep).ifPresent(dependencySet::add));
+        dependencySets.put(configName, dependencySet);
 
-        Set<File> configFiles = config.getResolvedConfiguration().getLenientConfiguration().getFiles(Specs.SATISFIES_ALL);
-        final Set<UnresolvedDependency> unresolved = config.getResolvedConfiguration().getLenientConfiguration().getUnresolvedModuleDependencies();
+        Provider<ArtifactCollection> classpath = config.map(configuration -> configuration.getIncoming()
+                .artifactView(view -> view.lenient(true))
+                .getArtifacts());
 
-        File agentJar = findAgentDependency();
         RegularFile instrumentationJar = findInstrumentationJar();
 
-        VerifyTask task = (VerifyTask) project.task(ImmutableMap.of(TASK_TYPE, VerifyTask.class), taskName(dep, shouldSuccessfullyApply));
-
-        if (!unresolved.isEmpty()) {
-            logger.debug(task.getName() + " has unresolved dependencies: " + unresolved);
-        }
-
         // Write the failures to a file for Jenkins automation
         String outputContent = project.getPath().replace(":", "/").substring(1) + " " + dep + "\n";
 
+        String taskName = taskName(dep, shouldSuccessfullyApply);
         VerifyParameters parameters = new VerifyParameters()
+                .setProjectPath(project.getPath())
                 .setOriginalDependency(dep)
+                .setTaskName(taskName)
                 .setSpecifiedRange(specifiedRange)
-                .setAgentJar(agentJar)
                 .setInstrumentationJar(instrumentationJar.getAsFile())
                 .setShouldSuccessfullyApply(shouldSuccessfullyApply)
                 .setPrintSuccess(project.hasProperty("printSuccess"))
-                .setClasspathJars(configFiles)
                 .setVerifierFailures(outputContent, project.file(passesFileDir + "/failures.txt"))
                 .setVerifierPasses(outputContent, this.passesFile == null
                         ? project.file(passesFileDir + "/passes.txt")
-                        : this.passesFile);
+                        : this.passesFile)
+                .setReportLog(getReportLog())
+                .setJUnitReport(new File(project.getBuildDir(), "verifier/junit/TEST-" + taskName + ".xml"))
+                .setFailFastFile(failFastFile);
+
+        // the agent is only resolved once a verification asks for it
+        Provider<VerifyParameters> agentParameters = project.provider(() ->
+                new VerifyParameters().setFrom(parameters).setAgentJar(findAgentDependency()));
+
+        File resultFile = new File(project.getBuildDir(), "verifier/results/" + taskName + ".txt");
+        registeredVersions.put(taskName, parameters);
+        registrations.put(taskName, new RegisteredVersion(taskName, agentParameters, classpath, classpathTimer, resultFile));
+        TaskProvider<RecordResultsTask> recordResults = recordResultsTask();
 
         // Pass the required parameters to the `VerifyTask`
-        task.setParameters(parameters);
+        TaskProvider<VerifyTask> task = project.getTasks().register(taskName, VerifyTask.class, verifyTask -> {
+            verifyTask.setParameters(agentParameters.get());
+            verifyTask.setClasspath(classpath.get());
+            verifyTask.setClasspathTimer(classpathTimer);
+            verifyTask.setResultFile(resultFile);
+            verifyTask.dependsOn("jar");
+            verifyTask.finalizedBy(recordResults);
+            if (incremental && !dep.equals(CLASSPATH_DEP_NAME)) {
+                // the project's own classpath can change without a new version, so it is always verified
+                verifyTask.setIncremental(true);
+                verifyTask.onlyIf(new VerifyTask.ClearsResultWhenSkipped(new VerificationState.NotCurrent(stateFile(), taskName)));
+            }
+        });
+        recordResults.configure(record -> record.record(taskName, resultFile, parameters.getVerifierPassesFile(), parameters.getVerifierPassesContent()));
 
         return Stream.of(task);
     }
 
+    /**
+     * Versions whose verification didn't run because it was up-to-date still belong in the passes file.
+     */
+    private TaskProvider<RecordResultsTask> recordResultsTask() {
+        if (recordResultsTask == null) {
+            recordResultsTask = project.getTasks().register(VerificationPlugin.RESULTS_TASK_NAME, RecordResultsTask.class,
+                    task -> task.setStateFile(stateFile()));
+        }
+        return recordResultsTask;
+    }
+
+    private File stateFile() {
+        return new File(project.getBuildDir(), "verifier/verified-versions.properties");
+    }
+
+    /**
+     * The state as the last build left it. It's read through the providers, so the configuration cache knows the
+     * order of the tasks depends on it, and is invalidated when it changes.
+     */
+    private synchronized VerificationState verificationState() {
+        if (verificationState == null) {
+            File stateFile = stateFile();
+            String contents = project.getProviders().fileContents(project.getLayout().file(project.provider(() -> stateFile)))
+                    .getAsText()
+                    .getOrNull();
+            verificationState = new VerificationState(stateFile, contents);
+        }
+        return verificationState;
+    }
+
+    /**
+     * The tasks in the order they should run, most likely to fail first.
+     *
+     * @see VerificationOrder
+     */
+    List<TaskProvider<VerifyTask>> prioritize(List<TaskProvider<VerifyTask>> tasks) {
+        Map<String, TaskProvider<VerifyTask>> byName = new LinkedHashMap<>();
+        tasks.forEach(task -> byName.put(task.getName(), task));
+        Map<String, VerifyParameters> versions = new LinkedHashMap<>(registeredVersions);
+        versions.keySet().retainAll(byName.keySet());
+
+        List<TaskProvider<VerifyTask>> ordered = VerificationOrder.order(versions, taskName -> verificationState().lastFailed(taskName))
+                .stream()
+                .map(byName::remove)
+                .collect(Collectors.toList());
+        // anything this factory didn't register keeps its place at the end
+        ordered.addAll(byName.values());
+        return ordered;
+    }
+
+    /**
+     * What the batch, bisect and aggregate tasks verify the given tasks' versions from, so they don't create the
+     * tasks. Tasks this factory didn't register are left out.
+     */
+    List<RegisteredVersion> registered(List<TaskProvider<VerifyTask>> tasks) {
+        return tasks.stream()
+                .map(task -> registrations.get(task.getName()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * True if the dependency matches one of the excluded versions, ranges or patterns.
+     */
+    boolean isExcluded(String dep) {
+        return exclusions.matches(dep);
+    }
+
+    private static Collection<String> requireExcludes(Collection<String> excludeVersions) {
+        if (excludeVersions == null) {
+            throw new NullPointerException("excludeVersions must not be null");
+        }
+        return excludeVersions;
+    }
+
+    /**
+     * How long setting up each verification task took, in milliseconds.
+     */
+    List<Long> getConfigurationTimes() {
+        return configurationTimes;
+    }
+
+    File getReportLog() {
+        return new File(project.getBuildDir(), "verifier/verification.jsonl");
+    }
+
+    /**
+     * The {@code group:name:version} coordinates of every registered task's configuration, keyed by configuration name.
+     */
+    Map<String, List<String>> getDependencySets() {
+        return dependencySets;
+    }
+
+    private static Optional<String> coordinatesOf(Object dependency) {
+        if (dependency instanceof String) {
+            return Optional.of((String) dependency);
+        }
+        if (dependency instanceof Dependency) {
+            Dependency moduleDependency = (Dependency) dependency;
+            if (moduleDependency.getGroup() != null && moduleDependency.getVersion() != null) {
+                return Optional.of(moduleDependency.getGroup() + ":" + moduleDependency.getName() + ":" + moduleDependency.getVersion());
+            }
+        }
+        return Optional.empty();
+    }
+
     private File findAgentDependency() {
+        if (agentJar != null) {
+            return agentJar;
+        }
+
         Optional<File> agentFileOpt = project.getConfigurations().getByName(VerificationPlugin.VERIFIER_TASK_NAME).getFiles().stream()
                 .filter(file -> file.getName().startsWith("newrelic-agent") || file.getName().equalsIgnoreCase("newrelic.jar"))
                 .findFirst();
@@ -225,17 +416,23 @@ public class ProjectTaskFactory {
         if (!agentFileOpt.isPresent()) {
             throw new GradleScriptException("newrelic-agent not found; ensure `nrAgent` is set", new Exception());
         }
-        return agentFileOpt.get();
+        agentJar = agentFileOpt.get();
+        return agentJar;
     }
 
     private RegularFile findInstrumentationJar() {
+        if (instrumentationJar != null) {
+            return instrumentationJar;
+        }
+
         Jar jarTask = (Jar) project.getTasks().getByName("jar");
         RegularFile instrumentationFile = jarTask.getArchiveFile().getOrNull();
 
         if (instrumentationFile == null) {
             throw new GradleScriptException("No instrumentation jar available", new Exception());
         }
-        return instrumentationFile;
+        instrumentationJar = instrumentationFile;
+        return instrumentationJar;
     }
 
     private String configName(String dep) {
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the versions that passed without running, because their verification was up-to-date or came from
+ * the build cache, to the passes file. Versions that were verified in this build are already there.
+ *
+ * <p>Also records every outcome in the {@link VerificationState} that incremental runs check.</p>
+ */
+public class RecordResultsTask extends DefaultTask {
+    private final List<String> taskNames = new ArrayList<>();
+    private final List<File> resultFiles = new ArrayList<>();
+    private final List<File> passesFiles = new ArrayList<>();
+    private final List<String> passesContents = new ArrayList<>();
+    private File stateFile;
+
+    /**
+     * Records the version in {@code passesFile} if {@code resultFile} says it passed.
+     */
+    public void record(String taskName, File resultFile, File passesFile, String passesContent) {
+        taskNames.add(taskName);
+        resultFiles.add(resultFile);
+        passesFiles.add(passesFile);
+        passesContents.add(passesContent);
+    }
+
+    @TaskAction
+    public void recordResults() throws IOException {
+        VerificationState state = stateFile == null ? null : new VerificationState(stateFile);
+        Map<File, Set<String>> existingLines = new LinkedHashMap<>();
+        for (int i = 0; i < resultFiles.size(); i++) {
+            List<String> result = readLines(resultFiles.get(i));
+            if (result.isEmpty()) {
+                continue;
+            }
+            if (!result.get(0).startsWith(VersionVerifier.RESULT_PASSED + " ")) {
+                if (state != null) {
+                    state.failed(taskNames.get(i));
+                }
+                continue;
+            }
+            if (state != null && result.size() > 1) {
+                state.passed(taskNames.get(i), result.get(1));
+            }
+
+            File passesFile = passesFiles.get(i);
+            Set<String> existing = existingLines.computeIfAbsent(passesFile, file -> new HashSet<>(readLines(file)));
+            String line = passesContents.get(i).trim();
+            if (existing.add(line)) {
+                ResultSink.append(passesFile, line + "\n");
+            }
+        }
+
+        ResultSink.flush();
+        if (state != null) {
+            state.save();
+        }
+    }
+
+    private static List<String> readLines(File file) {
+        if (!file.isFile()) {
+            return new ArrayList<>();
+        }
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to read " + file, e);
+        }
+    }
+
+    @Internal
+    public List<String> getTaskNames() {
+        return taskNames;
+    }
+
+    @Internal
+    public List<File> getResultFiles() {
+        return resultFiles;
+    }
+
+    @Internal
+    public List<File> getPassesFiles() {
+        return passesFiles;
+    }
+
+    @Internal
+    public List<String> getPassesContents() {
+        return passesContents;
+    }
+
+    public void setStateFile(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    @Internal
+    public File getStateFile() {
+        return stateFile;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.provider.Provider;
+
+import java.io.File;
+
+/**
+ * One version registered by {@link ProjectTaskFactory}: what its {@link VerifyTask} is handed, without the task.
+ *
+ * <p>The batch, bisect and aggregate tasks verify versions from these, so the per-version tasks are never created for
+ * them. The parameters and classpath are providers; the agent and the version's configuration are only resolved
+ * once they are asked for.</p>
+ */
+final class RegisteredVersion {
+    private final String taskName;
+    private final Provider<VerifyParameters> parameters;
+    private final Provider<ArtifactCollection> classpath;
+    private final ClasspathTimer classpathTimer;
+    private final File resultFile;
+
+    RegisteredVersion(String taskName, Provider<VerifyParameters> parameters, Provider<ArtifactCollection> classpath,
+                      ClasspathTimer classpathTimer, File resultFile) {
+        this.taskName = taskName;
+        this.parameters = parameters;
+        this.classpath = classpath;
+        this.classpathTimer = classpathTimer;
+        this.resultFile = resultFile;
+    }
+
+    String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * The verification's parameters, with the task name and the agent jar set.
+     */
+    Provider<VerifyParameters> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * A lenient view of the library version and its dependencies.
+     */
+    Provider<ArtifactCollection> getClasspath() {
+        return classpath;
+    }
+
+    ClasspathTimer getClasspathTimer() {
+        return classpathTimer;
+    }
+
+    File getResultFile() {
+        return resultFile;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * A line of the {@link VerificationReport JSON lines report}, read back for the summary and the durations.
+ */
+final class ReportLine {
+    private final JsonObject json;
+
+    private ReportLine(JsonObject json) {
+        this.json = json;
+    }
+
+    /**
+     * The report on the line, or null if the line isn't one.
+     */
+    static ReportLine parse(String line) {
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            if (element.isJsonObject() && string(element.getAsJsonObject(), "task") != null) {
+                return new ReportLine(element.getAsJsonObject());
+            }
+        } catch (JsonParseException | IllegalStateException ignored) {
+            // not one of ours
+        }
+        return null;
+    }
+
+    String getTask() {
+        return string(json, "task");
+    }
+
+    String getProject() {
+        return string(json, "project");
+    }
+
+    String getDependency() {
+        return string(json, "dependency");
+    }
+
+    boolean isPassed() {
+        return bool(json, "passed");
+    }
+
+    boolean isFromStore() {
+        return bool(json, "fromStore");
+    }
+
+    /**
+     * One of the timings, in milliseconds, like {@code verification} or {@code total}; 0 if it's missing.
+     */
+    long getTiming(String name) {
+        return number(object(json, "timings"), name);
+    }
+
+    /**
+     * Classpath jars the worker already held open.
+     */
+    long getJarsReused() {
+        return number(object(json, "openJars"), "reused");
+    }
+
+    /**
+     * Classpath jars the worker had to open.
+     */
+    long getJarsOpened() {
+        return number(object(json, "openJars"), "opened");
+    }
+
+    private static JsonObject object(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+    }
+
+    private static String string(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() ? element.getAsString() : null;
+    }
+
+    private static boolean bool(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isBoolean() && element.getAsBoolean();
+    }
+
+    private static long number(JsonObject json, String name) {
+        JsonElement element = json == null ? null : json.get(name);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber() ? element.getAsLong() : 0;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the lines that verifications append to the passes and failures files, and writes them in batches.
+ *
+ * <p>{@link #append} only queues the line, so verifications never wait on each other to record a result. A single
+ * writer thread takes everything queued so far and writes all of a file's lines in one write under an exclusive file
+ * lock, so lines from other projects and other Gradle processes sharing the file never interleave. While it writes,
+ * the next lines queue up and go out in the next batch. The writer stops once the queue is empty and starts again
+ * with the next line.</p>
+ *
+ * <p>{@link #flush} waits for the lines the calling thread queued, and reports the failure to write any of them, so
+ * a work item hears about its own lines and no one else's.</p>
+ */
+final class ResultSink {
+    private static final long LOCK_RETRY_MILLIS = 10;
+
+    private static final ConcurrentLinkedQueue<Line> pending = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean writing = new AtomicBoolean();
+    // the lines each thread queued that it hasn't flushed yet
+    private static final ThreadLocal<List<Line>> unflushed = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Queues {@code content} to be appended to {@code file}, by the calling thread's next {@link #flush} at the latest.
+     */
+    static void append(File file, String content) {
+        if (file != null && content != null) {
+            Line line = new Line(file.getAbsoluteFile(), content);
+            unflushed.get().add(line);
+            pending.add(line);
+            startWriter();
+        }
+    }
+
+    /**
+     * Waits until every line this thread queued is written.
+     *
+     * @throws IOException if a file of one of this thread's lines could not be written; the lines are not retried
+     */
+    static void flush() throws IOException {
+        List<Line> lines = unflushed.get();
+        unflushed.remove();
+
+        List<IOException> failures = new ArrayList<>();
+        boolean interrupted = false;
+        for (Line line : lines) {
+            while (true) {
+                try {
+                    IOException failure = line.written.get();
+                    if (failure != null && !failures.contains(failure)) {
+                        failures.add(failure);
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    // the line is queued already, so it's written anyway; finish waiting for it
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (!failures.isEmpty()) {
+            IOException failure = failures.get(0);
+            failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    private static void startWriter() {
+        if (writing.compareAndSet(false, true)) {
+            Thread writer = new Thread(ResultSink::writeAll, "verify-instrumentation-results");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private static void writeAll() {
+        while (true) {
+            Map<File, List<Line>> batches = new LinkedHashMap<>();
+            for (Line line = pending.poll(); line != null; line = pending.poll()) {
+                batches.computeIfAbsent(line.file, file -> new ArrayList<>()).add(line);
+            }
+            if (batches.isEmpty()) {
+                writing.set(false);
+                // a line queued after the poll, but before the flag was cleared, didn't start a writer of its own
+                if (pending.isEmpty() || !writing.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            batches.forEach((file, lines) -> {
+                StringBuilder content = new StringBuilder();
+                lines.forEach(line -> content.append(line.content));
+                IOException failure = null;
+                try {
+                    write(file, content.toString());
+                } catch (IOException | RuntimeException e) {
+                    failure = e instanceof IOException ? (IOException) e : new IOException("Unable to write " + file, e);
+                }
+                for (Line line : lines) {
+                    line.written.complete(failure);
+                }
+            });
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileLock ignored = lock(channel, file)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private static FileLock lock(FileChannel channel, File file) throws IOException {
+        while (true) {
+            try {
+                return channel.lock();
+            } catch (OverlappingFileLockException e) {
+                // held by another copy of the plugin in this JVM, e.g. from a different build's class loader
+                try {
+                    Thread.sleep(LOCK_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the lock on " + file, interrupted);
+                }
+            }
+        }
+    }
+
+    private static final class Line {
+        final File file;
+        final String content;
+        // completed with the failure to write the line's file, or null once it's written
+        final CompletableFuture<IOException> written = new CompletableFuture<>();
+
+        Line(File file, String content) {
+            this.file = file;
+            this.content = content;
+        }
+    }
+
+    private ResultSink() {}
+}
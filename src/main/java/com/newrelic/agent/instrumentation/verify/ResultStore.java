@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Verification results, addressed by the content of everything the verifier looks at.
+ *
+ * @see LocalResultStore
+ * @see HttpResultStore
+ */
+interface ResultStore {
+    /**
+     * @return the stored result, or null if there isn't one
+     */
+    VerificationResult load(String key) throws IOException;
+
+    void store(String key, VerificationResult result) throws IOException;
+
+    /**
+     * The key of a verification: a hash of the agent jar, the instrumentation jar and the classpath, in order.
+     * Where the files are doesn't matter, only what is in them.
+     */
+    static String key(File agentJar, File instrumentationJar, List<File> classpathJars) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putString("agent " + FileHashes.sha256(agentJar) + "\n", StandardCharsets.UTF_8)
+                .putString("instrumentation " + FileHashes.sha256(instrumentationJar) + "\n", StandardCharsets.UTF_8);
+        for (File classpathJar : classpathJars) {
+            String hash = classpathJar.isFile() ? FileHashes.sha256(classpathJar) : "missing " + classpathJar.getName();
+            hasher.putString("classpath " + hash + "\n", StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Project;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.RESULT_STORE_MAX_SIZE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.RESULT_STORE_PATH;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.RESULT_STORE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.RESULT_STORE_URL_PROPERTY;
+
+/**
+ * Where verification results are stored, handed to the workers with the rest of the parameters.
+ */
+public class ResultStoreOptions implements Serializable {
+    static final long DEFAULT_MAX_SIZE_MB = 256;
+
+    // one store per worker process, so the local store's size estimate is shared by its verifications
+    private static final ConcurrentMap<String, ResultStore> stores = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+    private File directory;
+    private long maxBytes;
+    private String url;
+
+    /**
+     * Reads the options from the {@code verifierResultStore}, {@code verifierResultStoreMaxSizeMb} and
+     * {@code verifierResultStoreUrl} project properties. The store is off unless {@code verifierResultStore}
+     * is set, and the remote store is only used if it has a url as well.
+     */
+    static ResultStoreOptions fromProject(Project project) {
+        ResultStoreOptions options = new ResultStoreOptions();
+
+        options.enabled = AfterEvaluationAction.getBooleanProperty(project, RESULT_STORE_PROPERTY);
+        options.directory = new File(project.getGradle().getGradleUserHomeDir(), RESULT_STORE_PATH);
+
+        Object maxSize = project.findProperty(RESULT_STORE_MAX_SIZE_PROPERTY);
+        options.maxBytes = (maxSize == null ? DEFAULT_MAX_SIZE_MB : Long.parseLong(maxSize.toString())) * 1024 * 1024;
+
+        Object url = project.findProperty(RESULT_STORE_URL_PROPERTY);
+        options.url = url == null || url.toString().isEmpty() ? null : url.toString();
+        return options;
+    }
+
+    static ResultStoreOptions local(File directory, long maxBytes) {
+        ResultStoreOptions options = new ResultStoreOptions();
+        options.enabled = true;
+        options.directory = directory;
+        options.maxBytes = maxBytes;
+        return options;
+    }
+
+    /**
+     * The store these options describe, or null if results aren't stored.
+     */
+    ResultStore open() {
+        if (!enabled) {
+            return null;
+        }
+        return stores.computeIfAbsent(directory + "|" + maxBytes + "|" + url, key -> {
+            ResultStore local = new LocalResultStore(directory, maxBytes);
+            return url == null ? local : new LayeredResultStore(local, new HttpResultStore(url));
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.DURATIONS_FILE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.DURATIONS_PATH;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.SHARD_PROPERTY;
+
+/**
+ * Which verifications belong to this shard, with {@code -PverifierShard=i/n}, so that n machines can each verify
+ * part of the matrix.
+ *
+ * <p>Every project works the assignment out on its own, from the same durations file, so the shards add up to the
+ * whole matrix without any coordination. The verifications in the file are handed out longest first, each to the
+ * shard with the least work so far. Verifications the file doesn't know yet go to a shard picked by the hash of
+ * their task path.</p>
+ */
+final class ShardPlan {
+    private static final String NAME = "verifyInstrumentationShardPlan";
+
+    private final int index;
+    private final int count;
+    private final Map<String, Integer> assigned = new HashMap<>();
+
+    /**
+     * @param index which shard this is, from 1 to {@code count}
+     * @param durations how long each verification took last time, by task path
+     */
+    ShardPlan(int index, int count, Map<String, Long> durations) {
+        this.index = index;
+        this.count = count;
+
+        long[] loads = new long[count];
+        List<Map.Entry<String, Long>> longestFirst = new ArrayList<>(durations.entrySet());
+        longestFirst.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        for (Map.Entry<String, Long> duration : longestFirst) {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (loads[shard] < loads[lightest]) {
+                    lightest = shard;
+                }
+            }
+            loads[lightest] += duration.getValue();
+            assigned.put(duration.getKey(), lightest);
+        }
+    }
+
+    /**
+     * The build's shard plan, or null if the build isn't sharded.
+     *
+     * @throws GradleException if the shard isn't {@code i/n}, with i from 1 to n
+     */
+    static ShardPlan forBuild(Project project) {
+        Object shard = project.findProperty(SHARD_PROPERTY);
+        if (shard == null) {
+            return null;
+        }
+        ExtraPropertiesExtension extra = project.getRootProject().getExtensions().getExtraProperties();
+        if (extra.has(NAME)) {
+            return (ShardPlan) extra.get(NAME);
+        }
+
+        String[] parts = shard.toString().split("/");
+        int index;
+        int count;
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException();
+            }
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException e) {
+            throw new GradleException(SHARD_PROPERTY + " must be i/n, like 1/4, but was " + shard);
+        }
+        if (count < 1 || index < 1 || index > count) {
+            throw new GradleException(SHARD_PROPERTY + " must be i/n with i from 1 to n, but was " + shard);
+        }
+
+        ShardPlan plan = new ShardPlan(index, count, VerificationDurations.read(durationsFile(project)).getDurations());
+        extra.set(NAME, plan);
+        return plan;
+    }
+
+    /**
+     * The durations file given by {@code -PverifierDurationsFile}, or the one in the root project's build directory.
+     */
+    static File durationsFile(Project project) {
+        Object path = project.findProperty(DURATIONS_FILE_PROPERTY);
+        return path == null
+                ? new File(project.getRootProject().getBuildDir(), DURATIONS_PATH)
+                : project.getRootProject().file(path);
+    }
+
+    boolean includes(String taskPath) {
+        Integer shard = assigned.get(taskPath);
+        if (shard == null) {
+            // String.hashCode is the same on every JVM, so every machine agrees
+            shard = Math.floorMod(taskPath.hashCode(), count);
+        }
+        return shard == index - 1;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
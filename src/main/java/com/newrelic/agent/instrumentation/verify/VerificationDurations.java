@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * How long each verification took the last time it ran, by task path, kept from build to build so the matrix can
+ * be split into shards that take about as long as each other.
+ *
+ * <p>The durations come from the lines of the {@link VerificationReport JSON lines report}; a version that comes
+ * back from the result store keeps the duration it had when it was actually verified.</p>
+ */
+final class VerificationDurations {
+    private final File file;
+    private final Map<String, Long> durations = new TreeMap<>();
+
+    private VerificationDurations(File file) {
+        this.file = file;
+    }
+
+    /**
+     * The durations in the file, or none if it doesn't exist or can't be read.
+     */
+    static VerificationDurations read(File file) {
+        VerificationDurations durations = new VerificationDurations(file);
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException ignored) {
+                // the shards are balanced by hash alone until the next build records durations
+                return durations;
+            }
+            properties.stringPropertyNames().forEach(taskPath -> {
+                try {
+                    durations.durations.put(taskPath, Long.parseLong(properties.getProperty(taskPath)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            });
+        }
+        return durations;
+    }
+
+    /**
+     * Records the duration from a line of the report. Lines that aren't reports, or come from the result store,
+     * are ignored.
+     */
+    void addReportLine(String json) {
+        ReportLine report = ReportLine.parse(json);
+        if (report != null && report.getProject() != null && !report.isFromStore()) {
+            durations.put(taskPath(report.getProject(), report.getTask()), report.getTiming("total"));
+        }
+    }
+
+    /**
+     * Task paths to milliseconds, in task path order.
+     */
+    Map<String, Long> getDurations() {
+        return durations;
+    }
+
+    void save() throws IOException {
+        Path target = file.toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write("# How long each verification took the last time it ran, in milliseconds\n");
+                for (Map.Entry<String, Long> duration : durations.entrySet()) {
+                    // task paths start with a colon, which has to be escaped in a properties key
+                    writer.write(duration.getKey().replace(":", "\\:") + "=" + duration.getValue() + "\n");
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static String taskPath(String projectPath, String taskName) {
+        return (projectPath.equals(":") ? "" : projectPath) + ":" + taskName;
+    }
+}
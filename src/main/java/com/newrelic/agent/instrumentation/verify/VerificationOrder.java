@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Orders the matrix so the versions most likely to fail are verified first:
+ * <ol>
+ *     <li>versions at a declared boundary, where the expected outcome changes from one version to the next, and
+ *     verifications that aren't part of a range, like the project's own classpath</li>
+ *     <li>the {@value #NEWEST_RELEASES} newest versions of each artifact</li>
+ *     <li>versions that failed the last time they were verified</li>
+ *     <li>everything else</li>
+ * </ol>
+ * Within each of these, newer versions come first.
+ */
+final class VerificationOrder {
+    static final int NEWEST_RELEASES = 3;
+
+    private static final VersionScheme versionScheme = new GenericVersionScheme();
+
+    /**
+     * @param versions       the parameters of each verification, by task name
+     * @param recentlyFailed whether a task failed the last time it ran
+     * @return the task names in the order they should run
+     */
+    static List<String> order(Map<String, VerifyParameters> versions, Predicate<String> recentlyFailed) {
+        Map<String, Integer> tiers = new HashMap<>();
+        // 0 for the newest version of an artifact, 1 for the one before it, and so on
+        Map<String, Integer> ages = new HashMap<>();
+
+        Map<String, List<String>> artifacts = new LinkedHashMap<>();
+        Map<String, Version> parsed = new HashMap<>();
+        versions.forEach((taskName, parameters) -> {
+            Version version = parameters.getSpecifiedRange() == null ? null : parse(parameters.getOriginalDependency());
+            if (version == null) {
+                tiers.put(taskName, 0);
+                ages.put(taskName, 0);
+                return;
+            }
+            parsed.put(taskName, version);
+            artifacts.computeIfAbsent(artifactOf(parameters.getOriginalDependency()), artifact -> new ArrayList<>()).add(taskName);
+        });
+
+        for (List<String> taskNames : artifacts.values()) {
+            taskNames.sort(Comparator.comparing(parsed::get));
+            for (int i = 0; i < taskNames.size(); i++) {
+                String taskName = taskNames.get(i);
+                int age = taskNames.size() - 1 - i;
+                ages.put(taskName, age);
+                if (isBoundary(taskNames, i, versions)) {
+                    tiers.put(taskName, 0);
+                } else if (age < NEWEST_RELEASES) {
+                    tiers.put(taskName, 1);
+                } else if (recentlyFailed.test(taskName)) {
+                    tiers.put(taskName, 2);
+                } else {
+                    tiers.put(taskName, 3);
+                }
+            }
+        }
+
+        List<String> ordered = new ArrayList<>(versions.keySet());
+        ordered.sort(Comparator.<String>comparingInt(tiers::get)
+                .thenComparingInt(ages::get)
+                .thenComparing(Comparator.naturalOrder()));
+        return ordered;
+    }
+
+    /**
+     * The first or last version of the artifact, or one whose neighbour is expected to do the opposite.
+     */
+    private static boolean isBoundary(List<String> taskNames, int index, Map<String, VerifyParameters> versions) {
+        if (index == 0 || index == taskNames.size() - 1) {
+            return true;
+        }
+        boolean expected = versions.get(taskNames.get(index)).shouldSuccessfullyApply();
+        return versions.get(taskNames.get(index - 1)).shouldSuccessfullyApply() != expected
+                || versions.get(taskNames.get(index + 1)).shouldSuccessfullyApply() != expected;
+    }
+
+    /**
+     * The version of {@code group:name:version}, or null if it can't be parsed.
+     */
+    private static Version parse(String dependency) {
+        try {
+            return versionScheme.parseVersion(dependency.substring(dependency.lastIndexOf(':') + 1));
+        } catch (InvalidVersionSpecificationException e) {
+            return null;
+        }
+    }
+
+    private static String artifactOf(String dependency) {
+        return dependency.substring(0, dependency.lastIndexOf(':'));
+    }
+
+    private VerificationOrder() {}
+}
@@ -5,9 +5,12 @@
 
 package com.newrelic.agent.instrumentation.verify;
 
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.OutputDirectory;
 
 import java.io.File;
@@ -15,6 +18,36 @@ import java.io.File;
 public class VerificationPlugin implements Plugin<Project> {
 
     static final String VERIFIER_TASK_NAME = "verifyInstrumentation";
+    static final String METADATA_CACHE_PROPERTY = "verifierMetadataCache";
+    static final String METADATA_TTL_PROPERTY = "verifierMetadataTtlMinutes";
+    static final String BATCH_SIZE_PROPERTY = "verifierBatchSize";
+    static final String BATCH_TASK_NAME = "verifyInstrumentationBatch";
+    static final String BISECT_PROPERTY = "verifierBisect";
+    static final String BISECT_TASK_NAME = "verifyInstrumentationBisect";
+    static final String FAIL_FAST_PROPERTY = "verifierFailFast";
+    static final String AGGREGATE_PROPERTY = "verifierAggregate";
+    static final String AGGREGATE_TASK_NAME = "verifyInstrumentationAggregate";
+    static final String SHARD_PROPERTY = "verifierShard";
+    static final String SHARD_REPORTS_PROPERTY = "verifierShardReports";
+    static final String MERGE_SHARDS_TASK_NAME = "verifyInstrumentationMergeShards";
+    static final String DURATIONS_FILE_PROPERTY = "verifierDurationsFile";
+    static final String DURATIONS_PATH = "verifier/durations.properties";
+    static final String FAIL_FAST_PATH = "verifier/fail-fast.txt";
+    static final String RESULTS_TASK_NAME = "verifyInstrumentationResults";
+    static final String ISOLATION_PROPERTY = "verifierIsolation";
+    static final String MAX_HEAP_SIZE_PROPERTY = "verifierMaxHeapSize";
+    static final String JVM_ARGS_PROPERTY = "verifierJvmArgs";
+    static final String MAX_WORKERS_PROPERTY = "verifierMaxWorkers";
+    static final String PREFETCH_CONNECTIONS_PROPERTY = "verifierPrefetchConnections";
+    static final String PREFETCH_TASK_NAME = "verifyInstrumentationPrefetch";
+    static final String PREFETCH_REPOSITORY_NAME = "verifyInstrumentationPrefetch";
+    static final String PREFETCH_REPOSITORY_PATH = "caches/newrelic-verify-instrumentation/repository";
+    static final String INCREMENTAL_PROPERTY = "verifierIncremental";
+    static final String FULL_RUN_PROPERTY = "verifierFullRun";
+    static final String RESULT_STORE_PROPERTY = "verifierResultStore";
+    static final String RESULT_STORE_MAX_SIZE_PROPERTY = "verifierResultStoreMaxSizeMb";
+    static final String RESULT_STORE_URL_PROPERTY = "verifierResultStoreUrl";
+    static final String RESULT_STORE_PATH = "caches/newrelic-verify-instrumentation/results";
 
     @OutputDirectory
     File passesFileDir = null;
@@ -35,11 +68,99 @@ public class VerificationPlugin implements Plugin<Project> {
             passesFileDir.mkdir();
         }
 
-        target.afterEvaluate(new AfterEvaluationAction(
+        Provider<MavenClientService> mavenClientService = target.getGradle().getSharedServices()
+                .registerIfAbsent(MavenClientService.NAME, MavenClientService.class, spec -> {
+                    if (AfterEvaluationAction.getBooleanProperty(target, METADATA_CACHE_PROPERTY)) {
+                        spec.getParameters().getMetadataCacheDir().set(new File(target.getGradle().getGradleUserHomeDir(),
+                                "caches/newrelic-verify-instrumentation/metadata"));
+                    }
+                    spec.getParameters().getMetadataTtlMinutes().set(getMetadataTtlMinutes(target));
+                    spec.getParameters().getOffline().set(target.getGradle().getStartParameter().isOffline());
+                });
+
+        Provider<AgentVerifierService> agentVerifierService = target.getGradle().getSharedServices()
+                .registerIfAbsent(AgentVerifierService.NAME, AgentVerifierService.class, spec -> {});
+        VerifierWorkerOptions workerOptions = VerifierWorkerOptions.fromProject(target);
+        ResultStoreOptions resultStoreOptions = ResultStoreOptions.fromProject(target);
+        Provider<VerifierWorkerService> workerService = target.getGradle().getSharedServices()
+                .registerIfAbsent(VerifierWorkerService.NAME, VerifierWorkerService.class, spec -> {
+                    if (workerOptions.getMaxWorkers() > 0) {
+                        spec.getMaxParallelUsages().set(workerOptions.getMaxWorkers());
+                    }
+                });
+
+        Provider<VerificationSummaryService> summaryService = target.getGradle().getSharedServices()
+                .registerIfAbsent(VerificationSummaryService.NAME, VerificationSummaryService.class, spec -> {
+                    spec.getParameters().getSummaryFile().set(new File(target.getRootProject().getBuildDir(), "verifier/summary.txt"));
+                    spec.getParameters().getDurationsFile().set(ShardPlan.durationsFile(target));
+                });
+        registerMergeShardsTask(target.getRootProject());
+
+        Provider<FailFastService> failFastService = AfterEvaluationAction.getBooleanProperty(target, FAIL_FAST_PROPERTY)
+                ? target.getGradle().getSharedServices().registerIfAbsent(FailFastService.NAME, FailFastService.class, spec ->
+                        spec.getParameters().getMarkerFile().set(target.getRootProject().getLayout().getBuildDirectory().file(FAIL_FAST_PATH)))
+                : null;
+
+        Action<VerifierTask> configureVerifierTask = task -> {
+            task.usesService(agentVerifierService);
+            task.usesService(workerService);
+            task.usesService(summaryService);
+            task.setAgentVerifierService(agentVerifierService);
+            task.setSummaryService(summaryService);
+            task.setWorkerOptions(workerOptions);
+            task.setResultStoreOptions(resultStoreOptions);
+            stopAfterFailure(task, failFastService);
+        };
+        target.getTasks().withType(VerifierTask.class).configureEach(configureVerifierTask);
+
+        AfterEvaluationAction afterEvaluationAction = new AfterEvaluationAction(
                 verifyOptions,
                 verifyInstrumentationTask,
                 target.getLogger(),
-                passesFileDir));
+                passesFileDir,
+                mavenClientService,
+                summaryService);
+        if (AfterEvaluationAction.getBooleanProperty(target, AGGREGATE_PROPERTY)) {
+            AggregatePlan.forBuild(target, configureVerifierTask).plan(target, afterEvaluationAction);
+        } else {
+            target.afterEvaluate(afterEvaluationAction);
+        }
+    }
+
+    /**
+     * Skips the task once a version has failed, with {@code -PverifierFailFast}. It's checked before the task's
+     * classpath is resolved, so a skipped version isn't downloaded.
+     */
+    private static void stopAfterFailure(Task task, Provider<FailFastService> failFastService) {
+        if (failFastService != null) {
+            task.usesService(failFastService);
+            Spec<Task> notStopped = new FailFastService.NotStopped(failFastService);
+            task.onlyIf(task instanceof VerifyTask ? new VerifyTask.ClearsResultWhenSkipped(notStopped) : notStopped);
+        }
+    }
+
+    /**
+     * Registers the root project's task that merges the reports of a sharded build, once for the whole build.
+     */
+    private static void registerMergeShardsTask(Project rootProject) {
+        if (rootProject.getTasks().getNames().contains(MERGE_SHARDS_TASK_NAME)) {
+            return;
+        }
+        rootProject.getTasks().register(MERGE_SHARDS_TASK_NAME, MergeShardsTask.class, task -> {
+            Object reports = rootProject.findProperty(SHARD_REPORTS_PROPERTY);
+            if (reports != null) {
+                for (String report : reports.toString().split(",")) {
+                    task.getReports().add(rootProject.file(report.trim()));
+                }
+            }
+            task.setSummaryFile(new File(rootProject.getBuildDir(), "verifier/merged-summary.txt"));
+            task.setDurationsFile(ShardPlan.durationsFile(rootProject));
+        });
+    }
+
+    private static long getMetadataTtlMinutes(Project project) {
+        Object ttl = project.findProperty(METADATA_TTL_PROPERTY);
+        return ttl == null ? MetadataCache.DEFAULT_TTL_MINUTES : Long.parseLong(ttl.toString());
     }
 
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.escape.Escaper;
+import com.google.common.xml.XmlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * The outcome of one version's verification, written as a line of the JSON lines report and as a JUnit XML
+ * test suite of its own.
+ *
+ * <p>Timings are in milliseconds. Resolution and download are measured by the task, class loading and
+ * verification by the worker. A result taken from the {@link ResultStore} has no class loading or verification
+ * time.</p>
+ */
+final class VerificationReport {
+    static final String ACTUAL_APPLIED = "applied";
+    static final String ACTUAL_NOT_APPLIED = "not-applied";
+    static final String ACTUAL_ERROR = "error";
+
+    private static final Escaper XML_CONTENT = XmlEscapers.xmlContentEscaper();
+    private static final Escaper XML_ATTRIBUTE = XmlEscapers.xmlAttributeEscaper();
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private final VerifyParameters parameters;
+    private String actual;
+    private boolean fromStore;
+    private String output = "";
+    private long classLoadingMillis;
+    private long verificationMillis;
+    private int jarsReused;
+    private int jarsOpened;
+
+    VerificationReport(VerifyParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    VerificationReport setActual(String actual) {
+        this.actual = actual;
+        return this;
+    }
+
+    VerificationReport setFromStore(boolean fromStore) {
+        this.fromStore = fromStore;
+        return this;
+    }
+
+    VerificationReport setOutput(String output) {
+        this.output = output == null ? "" : output;
+        return this;
+    }
+
+    VerificationReport setClassLoadingMillis(long classLoadingMillis) {
+        this.classLoadingMillis = classLoadingMillis;
+        return this;
+    }
+
+    VerificationReport setVerificationMillis(long verificationMillis) {
+        this.verificationMillis = verificationMillis;
+        return this;
+    }
+
+    /**
+     * How many of the classpath's jars the worker already held open, and how many it had to open.
+     */
+    VerificationReport setOpenJars(int reused, int opened) {
+        this.jarsReused = reused;
+        this.jarsOpened = opened;
+        return this;
+    }
+
+    boolean isPassed() {
+        return (parameters.shouldSuccessfullyApply() ? ACTUAL_APPLIED : ACTUAL_NOT_APPLIED).equals(actual);
+    }
+
+    /**
+     * True if the verifier failed to run, rather than seeing the instrumentation apply or not.
+     */
+    boolean isError() {
+        return ACTUAL_ERROR.equals(actual);
+    }
+
+    long getTotalMillis() {
+        return parameters.getResolutionMillis() + parameters.getDownloadMillis() + classLoadingMillis + verificationMillis;
+    }
+
+    /**
+     * Appends the JSON line to the parameters' report log, and writes the JUnit XML report, if they have them.
+     */
+    void write() throws IOException {
+        if (parameters.getReportLog() != null) {
+            ResultSink.append(parameters.getReportLog(), toJson() + "\n");
+        }
+        if (parameters.getJUnitReport() != null) {
+            CacheIo.writeAtomically(parameters.getJUnitReport().toPath(), toJUnitXml().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("task", parameters.getTaskName());
+        json.addProperty("project", parameters.getProjectPath());
+        json.addProperty("instrumentation", parameters.getInstrumentationJar() == null ? null : parameters.getInstrumentationJar().getName());
+        json.addProperty("dependency", parameters.getOriginalDependency());
+        json.addProperty("range", parameters.getSpecifiedRange());
+        json.addProperty("expected", parameters.shouldSuccessfullyApply() ? ACTUAL_APPLIED : ACTUAL_NOT_APPLIED);
+        json.addProperty("actual", actual);
+        json.addProperty("passed", isPassed());
+        json.addProperty("fromStore", fromStore);
+
+        JsonObject timings = new JsonObject();
+        timings.addProperty("resolution", parameters.getResolutionMillis());
+        timings.addProperty("download", parameters.getDownloadMillis());
+        timings.addProperty("classLoading", classLoadingMillis);
+        timings.addProperty("verification", verificationMillis);
+        timings.addProperty("total", getTotalMillis());
+        json.add("timings", timings);
+
+        JsonObject openJars = new JsonObject();
+        openJars.addProperty("reused", jarsReused);
+        openJars.addProperty("opened", jarsOpened);
+        json.add("openJars", openJars);
+
+        json.addProperty("finished", Instant.now().toString());
+        json.addProperty("output", output);
+        return GSON.toJson(json);
+    }
+
+    String toJUnitXml() {
+        String suiteName = parameters.getInstrumentationJar() == null ? "verifyInstrumentation" : parameters.getInstrumentationJar().getName();
+        String name = parameters.getTaskName() == null ? parameters.getOriginalDependency() : parameters.getTaskName();
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<testsuite name=\"").append(XML_ATTRIBUTE.escape(suiteName))
+                .append("\" tests=\"1\" skipped=\"0\" failures=\"").append(isPassed() || isError() ? 0 : 1)
+                .append("\" errors=\"").append(isError() ? 1 : 0)
+                .append("\" timestamp=\"").append(Instant.now())
+                .append("\" time=\"").append(seconds(getTotalMillis())).append("\">\n")
+                .append("  <properties>\n");
+        property(xml, "dependency", parameters.getOriginalDependency());
+        property(xml, "range", parameters.getSpecifiedRange());
+        property(xml, "expected", parameters.shouldSuccessfullyApply() ? ACTUAL_APPLIED : ACTUAL_NOT_APPLIED);
+        property(xml, "actual", actual);
+        property(xml, "fromStore", Boolean.toString(fromStore));
+        property(xml, "resolutionTime", seconds(parameters.getResolutionMillis()));
+        property(xml, "downloadTime", seconds(parameters.getDownloadMillis()));
+        property(xml, "classLoadingTime", seconds(classLoadingMillis));
+        property(xml, "verificationTime", seconds(verificationMillis));
+        xml.append("  </properties>\n")
+                .append("  <testcase name=\"").append(XML_ATTRIBUTE.escape(name))
+                .append("\" classname=\"").append(XML_ATTRIBUTE.escape(suiteName))
+                .append("\" time=\"").append(seconds(getTotalMillis())).append("\"");
+        if (isPassed()) {
+            xml.append("/>\n");
+        } else if (isError()) {
+            // the verifier itself failed, so neither outcome was seen
+            xml.append(">\n    <error message=\"the verifier failed to run\">")
+                    .append(XML_CONTENT.escape(output)).append("</error>\n  </testcase>\n");
+        } else {
+            xml.append(">\n    <failure message=\"expected ")
+                    .append(parameters.shouldSuccessfullyApply() ? ACTUAL_APPLIED : ACTUAL_NOT_APPLIED)
+                    .append(", was ").append(XML_ATTRIBUTE.escape(String.valueOf(actual))).append("\">")
+                    .append(XML_CONTENT.escape(output)).append("</failure>\n  </testcase>\n");
+        }
+        return xml.append("  <system-out>").append(XML_CONTENT.escape(output)).append("</system-out>\n")
+                .append("</testsuite>\n")
+                .toString();
+    }
+
+    private static void property(StringBuilder xml, String name, String value) {
+        if (value != null) {
+            xml.append("    <property name=\"").append(name).append("\" value=\"").append(XML_ATTRIBUTE.escape(value)).append("\"/>\n");
+        }
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What {@code WeavePackageVerifier.verify} said about one instrumentation jar and library classpath: whether the
+ * instrumentation applied, and what the verifier printed along the way.
+ *
+ * <p>This is the raw verdict, not whether it was what the task expected, so a pass and a fail task with the same
+ * classpath share it.</p>
+ */
+final class VerificationResult {
+    private static final String APPLIED = "applied";
+    private static final String NOT_APPLIED = "not-applied";
+
+    private final boolean applied;
+    private final String output;
+
+    VerificationResult(boolean applied, String output) {
+        this.applied = applied;
+        this.output = output == null ? "" : output;
+    }
+
+    boolean isApplied() {
+        return applied;
+    }
+
+    String getOutput() {
+        return output;
+    }
+
+    /**
+     * The verdict on the first line, followed by the verifier output.
+     */
+    byte[] encode() {
+        return ((applied ? APPLIED : NOT_APPLIED) + "\n" + output).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the decoded result, or null if {@code bytes} isn't an encoded result
+     */
+    static VerificationResult decode(byte[] bytes) {
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        int newline = content.indexOf('\n');
+        String verdict = newline < 0 ? content : content.substring(0, newline);
+        String output = newline < 0 ? "" : content.substring(newline + 1);
+        if (APPLIED.equals(verdict)) {
+            return new VerificationResult(true, output);
+        }
+        if (NOT_APPLIED.equals(verdict)) {
+            return new VerificationResult(false, output);
+        }
+        return null;
+    }
+}
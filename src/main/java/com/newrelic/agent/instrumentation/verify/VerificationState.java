@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Task;
+import org.gradle.api.specs.Spec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The versions a project has verified successfully, each with the fingerprint of the agent, instrumentation,
+ * classpath and expectation it was verified against, and the versions that failed. Incremental runs skip the versions whose
+ * fingerprint hasn't changed.
+ */
+class VerificationState {
+    // never a fingerprint, so a failed task is never current
+    private static final String FAILED = "failed";
+
+    private final File stateFile;
+    private Properties verified;
+
+    VerificationState(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * The state with the file's contents already read, or empty if the file doesn't exist.
+     */
+    VerificationState(File stateFile, String contents) {
+        this.stateFile = stateFile;
+        this.verified = new Properties();
+        if (contents != null) {
+            try {
+                verified.load(new StringReader(contents));
+            } catch (IOException ignored) {
+                // start over; the next run verifies everything
+            }
+        }
+    }
+
+    /**
+     * True if the task last passed with the same fingerprint.
+     */
+    synchronized boolean isCurrent(String taskName, String fingerprint) {
+        return fingerprint != null && fingerprint.equals(entries().getProperty(taskName));
+    }
+
+    synchronized void passed(String taskName, String fingerprint) {
+        entries().setProperty(taskName, fingerprint);
+    }
+
+    /**
+     * Remembered until the task passes, so the next run can verify it early.
+     */
+    synchronized void failed(String taskName) {
+        entries().setProperty(taskName, FAILED);
+    }
+
+    /**
+     * True if the task failed the last time it ran.
+     */
+    synchronized boolean lastFailed(String taskName) {
+        return FAILED.equals(entries().getProperty(taskName));
+    }
+
+    synchronized void save() throws IOException {
+        Path target = stateFile.toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), stateFile.getName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                entries().store(writer, "Versions verified by verifyInstrumentation, and what they were verified against");
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Identifies what a verification depends on: the agent, the instrumentation, the library's resolved classpath
+     * and whether the instrumentation should apply. The jars are hashed the way {@link ResultStore#key} hashes them.
+     */
+    static String fingerprint(File agentJar, File instrumentationJar, List<File> classpathJars, boolean shouldSuccessfullyApply) throws IOException {
+        return fingerprint(ResultStore.key(agentJar, instrumentationJar, classpathJars), shouldSuccessfullyApply);
+    }
+
+    /**
+     * The fingerprint of a verification whose jars are already hashed into its result store key.
+     */
+    static String fingerprint(String resultKey, boolean shouldSuccessfullyApply) {
+        return resultKey + ":" + (shouldSuccessfullyApply ? "pass" : "fail");
+    }
+
+    /**
+     * Skips a verification task that last passed with the same fingerprint. It only holds the state file and the
+     * task name, so it can be kept in the configuration cache, and reads the file again when the task is about to run.
+     */
+    static final class NotCurrent implements Spec<Task> {
+        private final File stateFile;
+        private final String taskName;
+
+        NotCurrent(File stateFile, String taskName) {
+            this.stateFile = stateFile;
+            this.taskName = taskName;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return !new VerificationState(stateFile).isCurrent(taskName, ((VerifyTask) task).fingerprint());
+        }
+    }
+
+    private Properties entries() {
+        if (verified == null) {
+            verified = new Properties();
+            if (stateFile.isFile()) {
+                try (Reader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+                    verified.load(reader);
+                } catch (IOException ignored) {
+                    // start over; the next run verifies everything
+                }
+            }
+        }
+        return verified;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Where the time of a verification build went: per phase totals and percentiles, the slowest versions and
+ * how often the caches answered.
+ *
+ * <p>Metadata lookups and task configuration are recorded as they happen; the per-version phases are read
+ * back from the lines of the {@link VerificationReport JSON lines report}.</p>
+ */
+final class VerificationSummary {
+    static final String METADATA = "metadata lookup";
+    static final String CONFIGURATION = "configuration";
+    static final String RESOLUTION = "resolution";
+    static final String DOWNLOAD = "download";
+    static final String CLASS_LOADING = "class loading";
+    static final String VERIFICATION = "verification";
+
+    private static final List<String> PHASES = Arrays.asList(METADATA, CONFIGURATION, RESOLUTION, DOWNLOAD, CLASS_LOADING, VERIFICATION);
+    private static final int SLOWEST_COUNT = 10;
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private final Map<String, List<Long>> phases = new LinkedHashMap<>();
+    private final List<Version> versions = new ArrayList<>();
+    private long metadataLookups;
+    private long metadataHits;
+    private long versionListFetches;
+    private long jarsReused;
+    private long jarsOpened;
+
+    VerificationSummary() {
+        for (String phase : PHASES) {
+            phases.put(phase, new ArrayList<>());
+        }
+    }
+
+    synchronized void addConfigurationTime(long millis) {
+        phases.get(CONFIGURATION).add(millis);
+    }
+
+    /**
+     * Replaces the metadata lookups with the client's, which are counted across the whole build.
+     */
+    synchronized void setMetadataLookups(MavenClient client) {
+        phases.put(METADATA, new ArrayList<>(client.getLookupTimes(TimeUnit.MILLISECONDS)));
+        metadataLookups = client.getLookupCount();
+        metadataHits = client.getCacheHitCount();
+        versionListFetches = client.getVersionListFetchCount();
+    }
+
+    /**
+     * Adds a version from a line of the JSON lines report. Lines that aren't reports are ignored.
+     */
+    synchronized void addReportLine(String json) {
+        ReportLine report = ReportLine.parse(json);
+        if (report == null) {
+            return;
+        }
+        Version version = new Version(report.getTask(), report.getDependency() == null ? "" : report.getDependency(),
+                report.getTiming("resolution"), report.getTiming("download"), report.getTiming("classLoading"), report.getTiming("verification"),
+                report.isPassed(), report.isFromStore());
+        versions.add(version);
+        jarsReused += report.getJarsReused();
+        jarsOpened += report.getJarsOpened();
+        phases.get(RESOLUTION).add(version.resolution);
+        phases.get(DOWNLOAD).add(version.download);
+        if (!version.fromStore) {
+            phases.get(CLASS_LOADING).add(version.classLoading);
+            phases.get(VERIFICATION).add(version.verification);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return versions.isEmpty();
+    }
+
+    synchronized String format() {
+        long passed = versions.stream().filter(version -> version.passed).count();
+        StringBuilder summary = new StringBuilder()
+                .append(String.format(Locale.ROOT, "Verified %d versions: %d passed, %d failed%n",
+                        versions.size(), passed, versions.size() - passed))
+                .append(String.format(Locale.ROOT, "%-16s %7s %10s %8s %8s %8s%n", "phase", "count", "total ms", "p50", "p95", "max"));
+        phases.forEach((phase, times) -> summary.append(String.format(Locale.ROOT, "%-16s %7d %10d %8d %8d %8d%n",
+                phase, times.size(), sum(times), percentile(times, 50), percentile(times, 95), percentile(times, 100))));
+
+        summary.append(String.format(Locale.ROOT, "Slowest versions:%n"));
+        for (Version version : slowest()) {
+            summary.append(String.format(Locale.ROOT, "  %8d ms  %s (resolution %d, download %d, class loading %d, verification %d)%n",
+                    version.total(), version.task, version.resolution, version.download, version.classLoading, version.verification));
+        }
+
+        long fromStore = versions.stream().filter(version -> version.fromStore).count();
+        summary.append(String.format(Locale.ROOT, "Metadata lookups: %d, %d from memory (%s); %d version lists fetched%n",
+                metadataLookups, metadataHits, ratio(metadataHits, metadataLookups), versionListFetches))
+                .append(String.format(Locale.ROOT, "Result store: %d of %d versions (%s)%n",
+                        fromStore, versions.size(), ratio(fromStore, versions.size())))
+                .append(String.format(Locale.ROOT, "Open jars: %d of %d classpath jars already open in the worker (%s)%n",
+                        jarsReused, jarsReused + jarsOpened, ratio(jarsReused, jarsReused + jarsOpened)));
+        return summary.toString();
+    }
+
+    /**
+     * The summary as one JSON object, for tracking builds over time.
+     */
+    synchronized String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("finished", Instant.now().toString());
+        json.addProperty("versions", versions.size());
+        json.addProperty("passed", versions.stream().filter(version -> version.passed).count());
+
+        JsonObject phaseJson = new JsonObject();
+        phases.forEach((phase, values) -> {
+            JsonObject totals = new JsonObject();
+            totals.addProperty("count", values.size());
+            totals.addProperty("total", sum(values));
+            totals.addProperty("p50", percentile(values, 50));
+            totals.addProperty("p95", percentile(values, 95));
+            totals.addProperty("max", percentile(values, 100));
+            phaseJson.add(phase, totals);
+        });
+        json.add("phases", phaseJson);
+
+        JsonArray slowestJson = new JsonArray();
+        for (Version version : slowest()) {
+            JsonObject slow = new JsonObject();
+            slow.addProperty("task", version.task);
+            slow.addProperty("dependency", version.dependency);
+            slow.addProperty("total", version.total());
+            slowestJson.add(slow);
+        }
+        json.add("slowest", slowestJson);
+
+        json.addProperty("metadataLookups", metadataLookups);
+        json.addProperty("metadataHits", metadataHits);
+        json.addProperty("versionListFetches", versionListFetches);
+        json.addProperty("resultStoreHits", versions.stream().filter(version -> version.fromStore).count());
+        json.addProperty("jarsReused", jarsReused);
+        json.addProperty("jarsOpened", jarsOpened);
+        return GSON.toJson(json);
+    }
+
+    private List<Version> slowest() {
+        return versions.stream()
+                .sorted(Comparator.comparingLong(Version::total).reversed())
+                .limit(SLOWEST_COUNT)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The nearest-rank percentile, or 0 for no values.
+     */
+    static long percentile(Collection<Long> values, int percentile) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static long sum(Collection<Long> values) {
+        return values.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static String ratio(long part, long whole) {
+        return whole == 0 ? "-" : String.format(Locale.ROOT, "%.1f%%", 100.0 * part / whole);
+    }
+
+    private static final class Version {
+        final String task;
+        final String dependency;
+        final long resolution;
+        final long download;
+        final long classLoading;
+        final long verification;
+        final boolean passed;
+        final boolean fromStore;
+
+        Version(String task, String dependency, long resolution, long download, long classLoading, long verification, boolean passed, boolean fromStore) {
+            this.task = task;
+            this.dependency = dependency;
+            this.resolution = resolution;
+            this.download = download;
+            this.classLoading = classLoading;
+            this.verification = verification;
+            this.passed = passed;
+            this.fromStore = fromStore;
+        }
+
+        long total() {
+            return resolution + download + classLoading + verification;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints a {@link VerificationSummary} when the build finishes, and writes it to the summary file. A JSON
+ * line for the build is also appended to a history file beside it, to track how builds change over time, and
+ * each version's duration is recorded in the {@link VerificationDurations durations file} that shards are balanced by.
+ *
+ * <p>The per-version timings come from the report logs of the verified projects. Each build starts a project's log
+ * over, when the project is configured or, when the build's tasks come from the configuration cache, when its first
+ * verification starts. The previous build's log is kept beside it as {@value #PREVIOUS_REPORT_LOG_SUFFIX}.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class VerificationSummaryService implements BuildService<VerificationSummaryService.Parameters>, AutoCloseable {
+    static final String NAME = "verifyInstrumentationSummary";
+    static final String PREVIOUS_REPORT_LOG_SUFFIX = ".previous";
+
+    private static final Logger logger = Logging.getLogger(VerificationSummaryService.class);
+
+    private final VerificationSummary summary = new VerificationSummary();
+    // each report log, and how long it was before this build's verifications
+    private final Map<File, Long> reportLogs = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public interface Parameters extends BuildServiceParameters {
+        RegularFileProperty getSummaryFile();
+
+        RegularFileProperty getDurationsFile();
+    }
+
+    /**
+     * Starts the report log over for this build, and includes what is appended to it from now on, unless it's
+     * already tracked.
+     */
+    void trackReportLog(File reportLog) {
+        if (reportLog == null) {
+            return;
+        }
+        File log = reportLog.getAbsoluteFile();
+        synchronized (reportLogs) {
+            if (reportLogs.containsKey(log)) {
+                return;
+            }
+            if (log.isFile()) {
+                try {
+                    Files.move(log.toPath(), new File(log.getPath() + PREVIOUS_REPORT_LOG_SUFFIX).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    // then it keeps growing, and only what this build adds is read
+                    logger.debug("Unable to rotate " + log + ": " + e);
+                }
+            }
+            reportLogs.put(log, log.length());
+        }
+    }
+
+    VerificationSummary getSummary() {
+        return summary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        VerificationDurations durations = getParameters().getDurationsFile().isPresent()
+                ? VerificationDurations.read(getParameters().getDurationsFile().get().getAsFile())
+                : null;
+        synchronized (reportLogs) {
+            for (Map.Entry<File, Long> reportLog : reportLogs.entrySet()) {
+                readReportLog(reportLog.getKey(), reportLog.getValue(), durations);
+            }
+        }
+        if (summary.isEmpty()) {
+            return;
+        }
+        if (durations != null) {
+            durations.save();
+        }
+
+        String text = summary.format();
+        logger.lifecycle(text);
+
+        if (getParameters().getSummaryFile().isPresent()) {
+            File summaryFile = getParameters().getSummaryFile().get().getAsFile();
+            Files.createDirectories(summaryFile.getParentFile().toPath());
+            Files.write(summaryFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+            File historyFile = new File(summaryFile.getParentFile(), "summary-history.jsonl");
+            Files.write(historyFile.toPath(), Collections.singletonList(summary.toJson()), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void readReportLog(File reportLog, long offset, VerificationDurations durations) throws IOException {
+        if (!reportLog.isFile()) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(reportLog, "r")) {
+            if (file.length() < offset) {
+                // replaced, e.g. by a clean; all of it is new
+                offset = 0;
+            }
+            byte[] added = new byte[(int) (file.length() - offset)];
+            file.seek(offset);
+            file.readFully(added);
+            for (String line : new String(added, StandardCharsets.UTF_8).split("\n")) {
+                summary.addReportLine(line);
+                if (durations != null) {
+                    durations.addReportLine(line);
+                }
+            }
+        }
+    }
+}
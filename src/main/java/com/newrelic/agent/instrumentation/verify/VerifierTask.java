@@ -0,0 +1,23 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+
+/**
+ * A task that runs the verifier in the plugin's workers. {@link VerificationPlugin} hands every one of them the
+ * build's services and worker options.
+ */
+public interface VerifierTask extends Task {
+    void setAgentVerifierService(Provider<AgentVerifierService> agentVerifierService);
+
+    void setSummaryService(Provider<VerificationSummaryService> summaryService);
+
+    void setWorkerOptions(VerifierWorkerOptions workerOptions);
+
+    void setResultStoreOptions(ResultStoreOptions resultStoreOptions);
+}
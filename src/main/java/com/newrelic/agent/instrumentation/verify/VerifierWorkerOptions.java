@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.ISOLATION_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.JVM_ARGS_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.MAX_HEAP_SIZE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.MAX_WORKERS_PROPERTY;
+
+/**
+ * How verifications are run: in the Gradle daemon, or in separate worker processes with their own heap.
+ *
+ * <p>Worker processes are started with the same fork options for every version, so Gradle keeps them
+ * alive and hands them the next version rather than starting a new process each time.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class VerifierWorkerOptions implements Serializable {
+    private boolean processIsolation;
+    private String maxHeapSize;
+    private List<String> jvmArgs = Collections.emptyList();
+    private int maxWorkers;
+
+    /**
+     * Reads the options from the {@code verifierIsolation}, {@code verifierMaxHeapSize},
+     * {@code verifierJvmArgs} and {@code verifierMaxWorkers} project properties.
+     */
+    static VerifierWorkerOptions fromProject(Project project) {
+        VerifierWorkerOptions options = new VerifierWorkerOptions();
+
+        Object isolation = project.findProperty(ISOLATION_PROPERTY);
+        if (isolation != null && !"none".equals(isolation.toString()) && !"process".equals(isolation.toString())) {
+            throw new GradleException(ISOLATION_PROPERTY + " must be \"none\" or \"process\", but got \"" + isolation + "\"");
+        }
+        options.processIsolation = isolation != null && "process".equals(isolation.toString());
+
+        Object maxHeapSize = project.findProperty(MAX_HEAP_SIZE_PROPERTY);
+        options.maxHeapSize = maxHeapSize == null ? null : maxHeapSize.toString();
+
+        Object jvmArgs = project.findProperty(JVM_ARGS_PROPERTY);
+        if (jvmArgs != null) {
+            options.jvmArgs = Arrays.stream(jvmArgs.toString().trim().split("\\s+"))
+                    .filter(arg -> !arg.isEmpty())
+                    .collect(Collectors.toList());
+        }
+
+        Object maxWorkers = project.findProperty(MAX_WORKERS_PROPERTY);
+        options.maxWorkers = maxWorkers == null ? 0 : Integer.parseInt(maxWorkers.toString());
+        return options;
+    }
+
+    /**
+     * The queue to submit verifications to, isolated as these options say.
+     */
+    WorkQueue workQueue(WorkerExecutor workerExecutor) {
+        if (!processIsolation) {
+            return workerExecutor.noIsolation();
+        }
+        return workerExecutor.processIsolation(spec -> spec.forkOptions(forkOptions -> {
+            if (maxHeapSize != null) {
+                forkOptions.setMaxHeapSize(maxHeapSize);
+            }
+            forkOptions.jvmArgs(jvmArgs);
+        }));
+    }
+
+    public boolean isProcessIsolation() {
+        return processIsolation;
+    }
+
+    public String getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * The most verifications that run at once, or 0 to leave it to Gradle's {@code --max-workers}.
+     */
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
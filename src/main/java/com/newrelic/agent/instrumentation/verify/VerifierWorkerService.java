@@ -0,0 +1,18 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Holds no state; verification tasks use it so that its {@code maxParallelUsages} caps how many of them,
+ * and so how many verifier workers, run at once.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class VerifierWorkerService implements BuildService<BuildServiceParameters.None> {
+    static final String NAME = "verifyInstrumentationWorkers";
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.workers.WorkParameters;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("UnstableApiUsage")
+public class VerifyBatchParameters implements WorkParameters, Serializable {
+
+    private List<VerifyParameters> versions = new ArrayList<>();
+
+    public List<VerifyParameters> getVersions() {
+        return versions;
+    }
+
+    public VerifyBatchParameters setVersions(List<VerifyParameters> versions) {
+        this.versions = new ArrayList<>(versions);
+        return this;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies every version of the matrix from one task, submitting them to the workers in batches of
+ * {@link #getBatchSize()} instead of one work item per version.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class VerifyBatchTask extends DefaultTask implements VerifierTask {
+    private final WorkerExecutor workerExecutor;
+
+    private final List<Provider<VerifyParameters>> versions = new ArrayList<>();
+    private final List<Provider<ArtifactCollection>> classpaths = new ArrayList<>();
+    private final List<ClasspathTimer> classpathTimers = new ArrayList<>();
+    private int batchSize;
+    private Provider<AgentVerifierService> agentVerifierService;
+    private Provider<VerificationSummaryService> summaryService;
+    private VerifierWorkerOptions workerOptions = new VerifierWorkerOptions();
+    private ResultStoreOptions resultStoreOptions;
+
+    @Inject
+    public VerifyBatchTask(WorkerExecutor workerExecutor) {
+        super();
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * Adds a version to the batch, with the parameters and classpath its own verification task would have. Neither
+     * is resolved, and the version's task isn't created.
+     */
+    void add(RegisteredVersion version) {
+        versions.add(version.getParameters());
+        classpaths.add(version.getClasspath());
+        classpathTimers.add(version.getClasspathTimer());
+    }
+
+    @TaskAction
+    public void verify() {
+        List<VerifyParameters> versions = getVersions();
+        if (agentVerifierService != null) {
+            // create the service, so it's there to release the cached agent loaders when the build finishes
+            agentVerifierService.get();
+        }
+        if (summaryService != null) {
+            // a build from the configuration cache never configured the projects, so their report logs are tracked here
+            versions.forEach(version -> summaryService.get().trackReportLog(version.getReportLog()));
+        }
+
+        // a single task isn't held back by maxParallelUsages, so cap the workers by making fewer, larger batches
+        int maxWorkers = workerOptions.getMaxWorkers();
+        Iterator<Integer> sizes = batchSizes(versions.size(), batchSize, maxWorkers).iterator();
+        int size = sizes.next();
+
+        WorkQueue workQueue = workerOptions.workQueue(workerExecutor);
+        List<VerifyParameters> batch = new ArrayList<>(size);
+        for (int i = 0; i < versions.size(); i++) {
+            File failFastFile = versions.get(i).getFailFastFile();
+            if (FailFast.isStopped(failFastFile)) {
+                // the remaining classpaths aren't resolved, so their jars aren't downloaded either
+                getLogger().lifecycle("Not verifying the remaining {} versions, stopped after {} failed",
+                        versions.size() - i, FailFast.describe(failFastFile));
+                break;
+            }
+            ArtifactCollection classpath = classpaths.get(i).getOrNull();
+            if (classpath != null && !classpath.getFailures().isEmpty()) {
+                getLogger().debug(versions.get(i).getTaskName() + " has unresolved dependencies: " + classpath.getFailures());
+            }
+            ClasspathTimer timer = classpathTimers.get(i);
+            batch.add(new VerifyParameters().setFrom(versions.get(i))
+                    .setClasspathJars(timer.files(classpath))
+                    .setClasspathTimings(timer.getResolutionMillis(), timer.getDownloadMillis())
+                    .setResultStore(resultStoreOptions));
+
+            // submitted as soon as its last classpath resolves, so the workers run while the next ones resolve
+            if (batch.size() == size || i == versions.size() - 1) {
+                List<VerifyParameters> submitted = new ArrayList<>(batch);
+                workQueue.submit(
+                        VerifyBatchWorkAction.class,
+                        parameters -> parameters.setVersions(submitted));
+                batch.clear();
+                size = sizes.hasNext() ? sizes.next() : size;
+            }
+        }
+    }
+
+    /**
+     * How many versions go in each batch. The classpaths are resolved one at a time by the task action, so the
+     * first batch holds one version and each one after it twice as many, up to the batch size: the workers start
+     * after the first classpath resolves rather than after a whole batch has. With a worker limit there are no
+     * more batches than workers, each no larger than it has to be, so the ramp is cut short when the versions
+     * wouldn't fit in the batches left.
+     */
+    static List<Integer> batchSizes(int versions, int batchSize, int maxWorkers) {
+        int largest = Math.max(1, batchSize);
+        if (maxWorkers > 0) {
+            largest = Math.max(largest, (versions + maxWorkers - 1) / maxWorkers);
+        }
+        List<Integer> sizes = new ArrayList<>();
+        int remaining = versions;
+        int next = 1;
+        while (remaining > 0) {
+            int size = Math.min(next, largest);
+            if (maxWorkers > 0) {
+                // whatever the later batches can't hold goes in this one
+                size = Math.max(size, remaining - (maxWorkers - sizes.size() - 1) * largest);
+            }
+            size = Math.min(size, remaining);
+            sizes.add(size);
+            remaining -= size;
+            next *= 2;
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(largest);
+        }
+        return sizes;
+    }
+
+    @Input
+    public List<VerifyParameters> getVersions() {
+        return versions.stream().map(Provider::get).collect(Collectors.toList());
+    }
+
+    @Internal
+    public List<Provider<ArtifactCollection>> getClasspaths() {
+        return classpaths;
+    }
+
+    @Input
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void setWorkerOptions(VerifierWorkerOptions workerOptions) {
+        this.workerOptions = workerOptions;
+    }
+
+    @Internal
+    public VerifierWorkerOptions getWorkerOptions() {
+        return workerOptions;
+    }
+
+    @Override
+    public void setResultStoreOptions(ResultStoreOptions resultStoreOptions) {
+        this.resultStoreOptions = resultStoreOptions;
+    }
+
+    @Internal
+    public ResultStoreOptions getResultStoreOptions() {
+        return resultStoreOptions;
+    }
+
+    @Override
+    public void setAgentVerifierService(Provider<AgentVerifierService> agentVerifierService) {
+        this.agentVerifierService = agentVerifierService;
+    }
+
+    @Internal
+    public Provider<AgentVerifierService> getAgentVerifierService() {
+        return agentVerifierService;
+    }
+
+    @Override
+    public void setSummaryService(Provider<VerificationSummaryService> summaryService) {
+        this.summaryService = summaryService;
+    }
+
+    @Internal
+    public Provider<VerificationSummaryService> getSummaryService() {
+        return summaryService;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifies several library versions in one work item. Each version is verified and recorded on its own;
+ * a failing version doesn't stop the rest of the batch, and every failure is reported at the end.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class VerifyBatchWorkAction implements WorkAction<VerifyBatchParameters> {
+    private static final Logger logger = Logging.getLogger(VerifyBatchWorkAction.class);
+
+    @Override
+    public void execute() {
+        List<String> failures = new ArrayList<>();
+        int notVerified = 0;
+        for (VerifyParameters version : getParameters().getVersions()) {
+            if (FailFast.isStopped(version.getFailFastFile())) {
+                failures.add(version.getTaskName() + ": " + FailFast.notVerified(version).getMessage());
+                notVerified++;
+                continue;
+            }
+            try {
+                VersionVerifier.verify(version);
+                logger.info("{}: verified {}", version.getTaskName(), version.getOriginalDependency());
+            } catch (GradleException e) {
+                logger.info("{}: failed {}", version.getTaskName(), version.getOriginalDependency());
+                failures.add(version.getTaskName() + ": " + describe(e));
+                FailFast.stop(version.getFailFastFile(), version);
+            }
+        }
+        VerifyWorkAction.flushResults();
+
+        if (!failures.isEmpty()) {
+            throw new GradleException((failures.size() - notVerified) + " of " + getParameters().getVersions().size()
+                    + " versions failed verification" + (notVerified > 0 ? ", " + notVerified + " were not verified" : "")
+                    + ":\n" + String.join("\n", failures));
+        }
+    }
+
+    private static String describe(GradleException e) {
+        return e.getCause() == null ? e.getMessage() : e.getMessage() + " " + e.getCause();
+    }
+}
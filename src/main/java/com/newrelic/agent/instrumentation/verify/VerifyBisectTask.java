@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the declared pass/fail boundaries of the matrix without verifying every version. For each artifact the
+ * ends of every run of versions expected to behave the same are verified, and a run whose ends don't behave as
+ * declared is binary searched for where the behavior actually changes; see {@link Bisection}.
+ *
+ * <p>Each round of versions is verified in parallel, and the next round is picked once it's done. Versions that
+ * aren't part of a range, like the classpath verification, are verified in the first round.</p>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class VerifyBisectTask extends DefaultTask implements VerifierTask {
+    private final WorkerExecutor workerExecutor;
+    private final VersionScheme versionScheme = new GenericVersionScheme();
+
+    private final List<Provider<VerifyParameters>> versions = new ArrayList<>();
+    private final List<Provider<ArtifactCollection>> classpaths = new ArrayList<>();
+    private final List<ClasspathTimer> classpathTimers = new ArrayList<>();
+    private Provider<AgentVerifierService> agentVerifierService;
+    private Provider<VerificationSummaryService> summaryService;
+    private VerifierWorkerOptions workerOptions = new VerifierWorkerOptions();
+    private ResultStoreOptions resultStoreOptions;
+
+    @Inject
+    public VerifyBisectTask(WorkerExecutor workerExecutor) {
+        super();
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * Adds a version to bisect, with the parameters, classpath and result file its own verification task would have.
+     * None of them is resolved, and the version's task isn't created.
+     */
+    void add(RegisteredVersion version) {
+        File resultFile = version.getResultFile();
+        versions.add(version.getParameters().map(parameters -> new VerifyParameters().setFrom(parameters).setResultFile(resultFile)));
+        classpaths.add(version.getClasspath());
+        classpathTimers.add(version.getClasspathTimer());
+    }
+
+    @TaskAction
+    public void verify() {
+        List<VerifyParameters> versions = getVersions();
+        if (agentVerifierService != null) {
+            // create the service, so it's there to release the cached agent loaders when the build finishes
+            agentVerifierService.get();
+        }
+        if (summaryService != null) {
+            // a build from the configuration cache never configured the projects, so their report logs are tracked here
+            versions.forEach(version -> summaryService.get().trackReportLog(version.getReportLog()));
+        }
+
+        List<Integer> unranged = new ArrayList<>();
+        Map<String, List<Integer>> artifacts = groupByArtifact(versions, unranged);
+        Map<String, Bisection> bisections = new LinkedHashMap<>();
+        artifacts.forEach((artifact, indexes) -> bisections.put(artifact, new Bisection(indexes.stream()
+                .map(index -> versions.get(index).shouldSuccessfullyApply())
+                .collect(Collectors.toList()))));
+
+        WorkQueue workQueue = workerOptions.workQueue(workerExecutor);
+        List<String> failures = new ArrayList<>();
+        List<Integer> round = new ArrayList<>(unranged);
+        while (true) {
+            List<Integer> bisected = new ArrayList<>();
+            bisections.forEach((artifact, bisection) ->
+                    bisection.nextVersions().forEach(next -> bisected.add(artifacts.get(artifact).get(next))));
+            round.addAll(bisected);
+            if (round.isEmpty()) {
+                break;
+            }
+
+            round.forEach(index -> submit(workQueue, versions.get(index), classpaths.get(index).getOrNull(), classpathTimers.get(index)));
+            try {
+                workQueue.await();
+            } catch (WorkerExecutionException e) {
+                // each version's outcome is read from its result file below
+                getLogger().debug("Versions failed verification in this round: " + e.getMessage());
+            }
+            File failFastFile = versions.get(round.get(0)).getFailFastFile();
+            if (FailFast.isStopped(failFastFile)) {
+                // the rest of the round gave up without verifying, so it can't be bisected any further
+                throw new GradleException("Stopped bisecting after " + FailFast.describe(failFastFile) + " failed");
+            }
+
+            for (int index : round) {
+                boolean asDeclared = passed(versions.get(index));
+                if (unranged.contains(index)) {
+                    if (!asDeclared) {
+                        failures.add(versions.get(index).getTaskName() + ": " + versions.get(index).getOriginalDependency());
+                    }
+                    continue;
+                }
+                String artifact = artifactOf(versions.get(index));
+                bisections.get(artifact).record(artifacts.get(artifact).indexOf(index), asDeclared);
+            }
+            round.clear();
+        }
+
+        bisections.forEach((artifact, bisection) -> {
+            getLogger().lifecycle("{}: verified {} of {} versions", artifact, bisection.getVerifiedCount(), bisection.getSize());
+            List<Integer> indexes = artifacts.get(artifact);
+            for (int[] mismatch : bisection.getMismatches()) {
+                VerifyParameters first = versions.get(indexes.get(mismatch[0]));
+                VerifyParameters last = versions.get(indexes.get(mismatch[1]));
+                failures.add(artifact + ": " + versionOf(first) + (mismatch[0] == mismatch[1] ? "" : " to " + versionOf(last))
+                        + " declared to " + (first.shouldSuccessfullyApply() ? "pass" : "fail")
+                        + ", but " + (mismatch[0] == mismatch[1] ? "doesn't" : "don't"));
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            throw new GradleException("The declared pass/fail boundaries are wrong:\n" + String.join("\n", failures));
+        }
+    }
+
+    private void submit(WorkQueue workQueue, VerifyParameters version, ArtifactCollection classpath, ClasspathTimer timer) {
+        if (classpath != null && !classpath.getFailures().isEmpty()) {
+            getLogger().debug(version.getTaskName() + " has unresolved dependencies: " + classpath.getFailures());
+        }
+        VerifyParameters submitted = new VerifyParameters().setFrom(version)
+                .setClasspathJars(timer.files(classpath))
+                .setClasspathTimings(timer.getResolutionMillis(), timer.getDownloadMillis())
+                .setResultStore(resultStoreOptions);
+        // a result file left from an earlier run can't be taken for this one's
+        if (version.getResultFile() != null) {
+            version.getResultFile().delete();
+        }
+        workQueue.submit(VerifyWorkAction.class, parameters -> parameters.setFrom(submitted));
+    }
+
+    /**
+     * Whether the version behaved as declared, according to the result file its verification wrote.
+     */
+    private boolean passed(VerifyParameters version) {
+        File resultFile = version.getResultFile();
+        if (resultFile == null || !resultFile.isFile()) {
+            return false;
+        }
+        try {
+            return new String(Files.readAllBytes(resultFile.toPath()), StandardCharsets.UTF_8)
+                    .startsWith(VersionVerifier.RESULT_PASSED);
+        } catch (IOException e) {
+            getLogger().warn("Unable to read " + resultFile + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * The versions of each artifact, as indexes into {@link #getVersions()}, oldest first.
+     *
+     * @param unranged where to add the versions that don't belong to a range
+     */
+    private Map<String, List<Integer>> groupByArtifact(List<VerifyParameters> versions, List<Integer> unranged) {
+        Map<String, List<Integer>> artifacts = new LinkedHashMap<>();
+        Map<Integer, Version> parsed = new LinkedHashMap<>();
+        for (int i = 0; i < versions.size(); i++) {
+            VerifyParameters version = versions.get(i);
+            if (version.getSpecifiedRange() == null) {
+                unranged.add(i);
+                continue;
+            }
+            try {
+                parsed.put(i, versionScheme.parseVersion(versionOf(version)));
+            } catch (InvalidVersionSpecificationException e) {
+                throw new GradleException("Invalid version: " + version.getOriginalDependency(), e);
+            }
+            artifacts.computeIfAbsent(artifactOf(version), artifact -> new ArrayList<>()).add(i);
+        }
+        artifacts.values().forEach(indexes -> indexes.sort(Comparator.comparing(parsed::get)));
+        return artifacts;
+    }
+
+    private static String artifactOf(VerifyParameters version) {
+        String dependency = version.getOriginalDependency();
+        return dependency.substring(0, dependency.lastIndexOf(':'));
+    }
+
+    private static String versionOf(VerifyParameters version) {
+        String dependency = version.getOriginalDependency();
+        return dependency.substring(dependency.lastIndexOf(':') + 1);
+    }
+
+    @Input
+    public List<VerifyParameters> getVersions() {
+        return versions.stream().map(Provider::get).collect(Collectors.toList());
+    }
+
+    @Internal
+    public List<Provider<ArtifactCollection>> getClasspaths() {
+        return classpaths;
+    }
+
+    @Override
+    public void setWorkerOptions(VerifierWorkerOptions workerOptions) {
+        this.workerOptions = workerOptions;
+    }
+
+    @Internal
+    public VerifierWorkerOptions getWorkerOptions() {
+        return workerOptions;
+    }
+
+    @Override
+    public void setResultStoreOptions(ResultStoreOptions resultStoreOptions) {
+        this.resultStoreOptions = resultStoreOptions;
+    }
+
+    @Internal
+    public ResultStoreOptions getResultStoreOptions() {
+        return resultStoreOptions;
+    }
+
+    @Override
+    public void setAgentVerifierService(Provider<AgentVerifierService> agentVerifierService) {
+        this.agentVerifierService = agentVerifierService;
+    }
+
+    @Internal
+    public Provider<AgentVerifierService> getAgentVerifierService() {
+        return agentVerifierService;
+    }
+
+    @Override
+    public void setSummaryService(Provider<VerificationSummaryService> summaryService) {
+        this.summaryService = summaryService;
+    }
+
+    @Internal
+    public Provider<VerificationSummaryService> getSummaryService() {
+        return summaryService;
+    }
+}
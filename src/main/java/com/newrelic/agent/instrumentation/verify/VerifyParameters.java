@@ -19,6 +19,7 @@ import java.util.stream.Collectors;
 public class VerifyParameters implements WorkParameters, Serializable {
 
     private String taskName;
+    private String projectPath;
     private File instrumentationJar;
     private boolean shouldSuccessfullyApply;
     private String verifierFailuresContent;
@@ -30,6 +31,14 @@ public class VerifyParameters implements WorkParameters, Serializable {
     private Set<File> classpathJars;
     private String originalDependency;
     private String specifiedRange;
+    private File resultFile;
+    private ResultStoreOptions resultStore;
+    private String resultKey;
+    private File reportLog;
+    private File jUnitReport;
+    private long resolutionMillis;
+    private long downloadMillis;
+    private File failFastFile;
 
     public String getTaskName() {
         return taskName;
@@ -40,6 +49,18 @@ public class VerifyParameters implements WorkParameters, Serializable {
         return this;
     }
 
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    /**
+     * The path of the project the verification belongs to, for the reports.
+     */
+    public VerifyParameters setProjectPath(String projectPath) {
+        this.projectPath = projectPath;
+        return this;
+    }
+
     public File getInstrumentationJar() {
         return instrumentationJar;
     }
@@ -142,18 +163,119 @@ public class VerifyParameters implements WorkParameters, Serializable {
         return this;
     }
 
+    public File getResultFile() {
+        return resultFile;
+    }
+
+    /**
+     * Where the outcome of the verification is written, if anywhere.
+     */
+    public VerifyParameters setResultFile(File resultFile) {
+        this.resultFile = resultFile;
+        return this;
+    }
+
+    public ResultStoreOptions getResultStore() {
+        return resultStore;
+    }
+
+    /**
+     * Where verdicts are looked up before verifying, and kept afterwards. Null to always verify.
+     */
+    public VerifyParameters setResultStore(ResultStoreOptions resultStore) {
+        this.resultStore = resultStore;
+        return this;
+    }
+
+    public String getResultKey() {
+        return resultKey;
+    }
+
+    /**
+     * The {@link ResultStore#key} of the verification, if the task already hashed its jars. It's used for the result
+     * store instead of hashing them again, and recorded with the outcome, so incremental runs know what the version
+     * was verified against.
+     */
+    public VerifyParameters setResultKey(String resultKey) {
+        this.resultKey = resultKey;
+        return this;
+    }
+
+    public File getReportLog() {
+        return reportLog;
+    }
+
+    /**
+     * The JSON lines file the verification's report is appended to, if any.
+     */
+    public VerifyParameters setReportLog(File reportLog) {
+        this.reportLog = reportLog;
+        return this;
+    }
+
+    public File getJUnitReport() {
+        return jUnitReport;
+    }
+
+    /**
+     * Where the verification's JUnit XML report is written, if anywhere.
+     */
+    public VerifyParameters setJUnitReport(File jUnitReport) {
+        this.jUnitReport = jUnitReport;
+        return this;
+    }
+
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    public long getDownloadMillis() {
+        return downloadMillis;
+    }
+
+    /**
+     * How long the task took to resolve the classpath and download its jars, for the reports.
+     */
+    public VerifyParameters setClasspathTimings(long resolutionMillis, long downloadMillis) {
+        this.resolutionMillis = resolutionMillis;
+        this.downloadMillis = downloadMillis;
+        return this;
+    }
+
+    public File getFailFastFile() {
+        return failFastFile;
+    }
+
+    /**
+     * The marker the first unexpected result leaves, so the rest of the matrix stops. Null to verify everything.
+     *
+     * @see FailFast
+     */
+    public VerifyParameters setFailFastFile(File failFastFile) {
+        this.failFastFile = failFastFile;
+        return this;
+    }
+
     public VerifyParameters setFrom(VerifyParameters parameters) {
         return this.setAgentJar(parameters.getAgentJar())
                 .setShouldSuccessfullyApply(parameters.shouldSuccessfullyApply())
                 .setClasspathJars(parameters.getClasspathJars())
                 .setInstrumentationJar(parameters.getInstrumentationJar())
                 .setTaskName(parameters.getTaskName())
+                .setProjectPath(parameters.getProjectPath())
                 .setOriginalDependency(parameters.getOriginalDependency())
                 .setPrintSuccess(parameters.isPrintSuccess())
                 .setSpecifiedRange(parameters.getSpecifiedRange())
+                .setResultFile(parameters.getResultFile())
+                .setResultStore(parameters.getResultStore())
+                .setResultKey(parameters.getResultKey())
+                .setReportLog(parameters.getReportLog())
+                .setJUnitReport(parameters.getJUnitReport())
+                .setClasspathTimings(parameters.getResolutionMillis(), parameters.getDownloadMillis())
+                .setFailFastFile(parameters.getFailFastFile())
                 .setVerifierFailures(parameters.getVerifierFailuresContent(), parameters.getVerifierFailuresFile())
                 .setVerifierPasses(parameters.getVerifierPassesContent(), parameters.getVerifierPassesFile());
     }
 
-    private static final long serialVersionUID = 3L;
+    private static final long serialVersionUID = 10L;
 }
@@ -6,39 +6,278 @@
 package com.newrelic.agent.instrumentation.verify;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
 
+/**
+ * Verifies the instrumentation against one library version.
+ *
+ * <p>The outcome only depends on the agent, the instrumentation jar, the library's classpath and what is
+ * expected of it, so an unchanged verification is up-to-date, or comes from the build cache, instead of
+ * running again. {@link RecordResultsTask} records those versions in the passes file.</p>
+ *
+ * <p>Everything the task holds is plain data, files, services or the lazy view of its classpath, and it never
+ * reaches back to the project once it's configured, so it can be kept in the configuration cache.</p>
+ */
+@CacheableTask
 @SuppressWarnings("UnstableApiUsage")
-public class VerifyTask extends DefaultTask {
+public class VerifyTask extends DefaultTask implements VerifierTask {
     private final WorkerExecutor workerExecutor;
+    private final ConfigurableFileCollection classpathFiles;
 
     private VerifyParameters parameters;
+    private ArtifactCollection classpath;
+    private ClasspathTimer classpathTimer = new ClasspathTimer();
+    private File resultFile;
+    private Provider<AgentVerifierService> agentVerifierService;
+    private Provider<VerificationSummaryService> summaryService;
+    private VerifierWorkerOptions workerOptions = new VerifierWorkerOptions();
+    private ResultStoreOptions resultStoreOptions;
+    private boolean incremental;
 
     @Inject
-    public VerifyTask(WorkerExecutor workerExecutor) {
+    public VerifyTask(WorkerExecutor workerExecutor, ObjectFactory objects) {
         super();
         this.workerExecutor = workerExecutor;
+        this.classpathFiles = objects.fileCollection();
     }
 
     @TaskAction
     public void verify() {
-        workerExecutor.noIsolation().submit(
+        if (agentVerifierService != null) {
+            // create the service, so it's there to release the cached agent loaders when the build finishes
+            agentVerifierService.get();
+        }
+        if (summaryService != null) {
+            // a build from the configuration cache never configured the project, so its report log is tracked here
+            summaryService.get().trackReportLog(parameters.getReportLog());
+        }
+
+        // the library's jars are only resolved, and downloaded, once the task actually runs
+        Set<File> classpathJars = classpathTimer.files(classpath);
+        if (classpath != null && !classpath.getFailures().isEmpty()) {
+            getLogger().debug(getName() + " has unresolved dependencies: " + classpath.getFailures());
+        }
+
+        workerOptions.workQueue(workerExecutor).submit(
                 VerifyWorkAction.class,
                 // IDEA might not like this. However, it does work and compile.
-                parameters -> parameters.setFrom(this.parameters).setTaskName(getName()));
+                parameters -> parameters.setFrom(this.parameters).setClasspathJars(classpathJars).setResultFile(resultFile).setResultStore(resultStoreOptions)
+                        .setResultKey(incremental ? resultKey() : null).setTaskName(getName())
+                        .setClasspathTimings(classpathTimer.getResolutionMillis(), classpathTimer.getDownloadMillis()));
+    }
+
+    /**
+     * What this verification depends on, or null if the jars can't be read. It resolves the classpath, so a version
+     * whose dependencies now resolve differently isn't taken as already verified.
+     *
+     * @see VerificationState
+     */
+    String fingerprint() {
+        String resultKey = resultKey();
+        return resultKey == null ? null : VerificationState.fingerprint(resultKey, getShouldSuccessfullyApply());
+    }
+
+    /**
+     * The hash of the jars, which is only worth reading every jar for in incremental runs. The worker reuses it for
+     * the result store, and the jars are hashed once per process however often they are asked about.
+     */
+    private String resultKey() {
+        try {
+            return ResultStore.key(getAgentJar(), getInstrumentationJar(), new ArrayList<>(classpathTimer.files(classpath)));
+        } catch (IOException e) {
+            // the verification itself reports what is wrong with the jars
+            return null;
+        }
     }
 
     public void setParameters(VerifyParameters parameters) {
         this.parameters = parameters;
     }
 
-    @Input
+    /**
+     * Everything the work action needs. The parts that decide the outcome are declared as inputs on their own;
+     * the rest, like where passes and failures are logged, doesn't make the verification out of date.
+     */
+    @Internal
     public VerifyParameters getParameters() {
         return parameters;
     }
 
-}
\ No newline at end of file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public File getAgentJar() {
+        return parameters.getAgentJar();
+    }
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public File getInstrumentationJar() {
+        return parameters.getInstrumentationJar();
+    }
+
+    /**
+     * The classpath's jars, which are resolved, and downloaded, when Gradle fingerprints the inputs.
+     */
+    @Classpath
+    public FileCollection getClasspathFiles() {
+        return classpathFiles;
+    }
+
+    @Input
+    public String getOriginalDependency() {
+        return parameters.getOriginalDependency();
+    }
+
+    @Input
+    public boolean getShouldSuccessfullyApply() {
+        return parameters.shouldSuccessfullyApply();
+    }
+
+    @Input
+    @Optional
+    public String getSpecifiedRange() {
+        return parameters.getSpecifiedRange();
+    }
+
+    @OutputFile
+    @Optional
+    public File getJUnitReport() {
+        return parameters.getJUnitReport();
+    }
+
+    public void setResultFile(File resultFile) {
+        this.resultFile = resultFile;
+    }
+
+    @OutputFile
+    public File getResultFile() {
+        return resultFile;
+    }
+
+    @Override
+    public void setWorkerOptions(VerifierWorkerOptions workerOptions) {
+        this.workerOptions = workerOptions;
+    }
+
+    @Internal
+    public VerifierWorkerOptions getWorkerOptions() {
+        return workerOptions;
+    }
+
+    @Override
+    public void setResultStoreOptions(ResultStoreOptions resultStoreOptions) {
+        this.resultStoreOptions = resultStoreOptions;
+    }
+
+    @Internal
+    public ResultStoreOptions getResultStoreOptions() {
+        return resultStoreOptions;
+    }
+
+    @Override
+    public void setAgentVerifierService(Provider<AgentVerifierService> agentVerifierService) {
+        this.agentVerifierService = agentVerifierService;
+    }
+
+    @Internal
+    public Provider<AgentVerifierService> getAgentVerifierService() {
+        return agentVerifierService;
+    }
+
+    @Override
+    public void setSummaryService(Provider<VerificationSummaryService> summaryService) {
+        this.summaryService = summaryService;
+    }
+
+    @Internal
+    public Provider<VerificationSummaryService> getSummaryService() {
+        return summaryService;
+    }
+
+    public void setClasspath(ArtifactCollection classpath) {
+        this.classpath = classpath;
+        if (classpath == null) {
+            classpathFiles.setFrom();
+        } else {
+            // the artifact files stay lazy in the configuration cache, where a view of them computed here wouldn't
+            classpathFiles.setFrom(classpath.getArtifactFiles());
+        }
+    }
+
+    /**
+     * A lenient view of the library version and its dependencies; artifacts that can't be resolved are left out.
+     */
+    @Internal
+    public ArtifactCollection getClasspath() {
+        return classpath;
+    }
+
+    /**
+     * Records what the version was verified against, so the next incremental run can skip it if that hasn't changed.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    @Internal
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setClasspathTimer(ClasspathTimer classpathTimer) {
+        this.classpathTimer = classpathTimer;
+    }
+
+    @Internal
+    ClasspathTimer getClasspathTimer() {
+        return classpathTimer;
+    }
+
+    /**
+     * Skips the verification unless the spec is satisfied, deleting its result file when it does. A skipped task
+     * leaves its outputs alone, and {@link RecordResultsTask} would otherwise take an earlier build's result for
+     * this one's.
+     */
+    static final class ClearsResultWhenSkipped implements Spec<Task> {
+        private final Spec<Task> spec;
+
+        ClearsResultWhenSkipped(Spec<Task> spec) {
+            this.spec = spec;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            if (spec.isSatisfiedBy(task)) {
+                return true;
+            }
+            File resultFile = ((VerifyTask) task).getResultFile();
+            if (resultFile != null) {
+                resultFile.delete();
+            }
+            return false;
+        }
+    }
+}
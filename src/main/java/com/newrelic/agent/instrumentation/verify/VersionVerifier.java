@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies the instrumentation against one library version and records the outcome in the passes or
+ * failures file. Shared by the single-version and the batched work actions, which {@link ResultSink#flush flush}
+ * the recorded lines when they finish.
+ *
+ * <p>If the parameters have a {@link ResultStore}, a verdict already stored for the same agent, instrumentation
+ * and classpath is used instead of loading the agent and verifying again.</p>
+ */
+final class VersionVerifier {
+    static final String RESULT_PASSED = "PASSED";
+    static final String RESULT_FAILED = "FAILED";
+
+    private static final Logger logger = Logging.getLogger(VersionVerifier.class);
+
+    /**
+     * @throws GradleException if the instrumentation didn't do what the parameters expected, or the verifier blew up
+     */
+    static void verify(VerifyParameters parameters) {
+        // a failed run leaves "FAILED" behind rather than the result of an earlier, passing run
+        writeResult(parameters, RESULT_FAILED);
+
+        ResultStore store = parameters.getResultStore() == null ? null : parameters.getResultStore().open();
+        String key = parameters.getResultKey();
+        VerificationResult result = null;
+        if (store != null) {
+            try {
+                if (key == null) {
+                    key = ResultStore.key(parameters.getAgentJar(), parameters.getInstrumentationJar(), classpathFiles(parameters));
+                }
+                result = store.load(key);
+            } catch (IOException e) {
+                logger.warn("Unable to read the stored result for " + parameters.getOriginalDependency() + ": " + e);
+            }
+        }
+
+        VerificationReport report = new VerificationReport(parameters).setFromStore(result != null);
+        if (result == null) {
+            result = runVerifier(parameters, report);
+            if (store != null && key != null) {
+                try {
+                    store.store(key, result);
+                } catch (IOException e) {
+                    logger.warn("Unable to store the result for " + parameters.getOriginalDependency() + ": " + e);
+                }
+            }
+        } else {
+            logger.info("Using the stored result for " + parameters.getOriginalDependency());
+        }
+
+        report.setActual(result.isApplied() ? VerificationReport.ACTUAL_APPLIED : VerificationReport.ACTUAL_NOT_APPLIED)
+                .setOutput(result.getOutput());
+        writeReport(report);
+
+        if (parameters.shouldSuccessfullyApply() == result.isApplied()) {
+            ResultSink.append(parameters.getVerifierPassesFile(), parameters.getVerifierPassesContent());
+            writeResult(parameters, RESULT_PASSED);
+        } else {
+            ResultSink.append(parameters.getVerifierFailuresFile(), parameters.getVerifierFailuresContent());
+
+            throw new GradleException(buildFailureMessage(parameters, result.getOutput()));
+        }
+    }
+
+    private static VerificationResult runVerifier(VerifyParameters parameters, VerificationReport report) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(outputStream);
+        boolean didApply;
+
+        // the cached agents and jars aren't released while they're in use
+        WorkerCaches.enter();
+        try {
+            // the agent is loaded once per worker and shared by every verification that uses the same jar
+            long start = System.nanoTime();
+            AgentVerifier verifier = AgentVerifier.forAgent(parameters.getAgentJar());
+            // jars the worker already holds open, for earlier versions, aren't scanned again
+            OpenJars.Classpath classpath = OpenJars.classpath(parameters.getClasspathJarsAsList());
+            report.setClassLoadingMillis(millisSince(start))
+                    .setOpenJars(classpath.getReused(), classpath.getOpened());
+
+            start = System.nanoTime();
+            didApply = verifier.verify(
+                    printStream,
+                    parameters.getInstrumentationJar().getAbsolutePath(),
+                    classpath.getJars());
+            report.setVerificationMillis(millisSince(start));
+
+        } catch (Throwable e) {
+            ResultSink.append(parameters.getVerifierFailuresFile(), parameters.getVerifierFailuresContent());
+            writeReport(report.setActual(VerificationReport.ACTUAL_ERROR).setOutput(outputStream + e.toString()));
+
+            throw new GradleException("The verifier threw an unexpected exception!", e);
+        } finally {
+            WorkerCaches.exit();
+        }
+
+        return new VerificationResult(didApply, new String(outputStream.toByteArray()));
+    }
+
+    private static void writeReport(VerificationReport report) {
+        try {
+            report.write();
+        } catch (IOException e) {
+            logger.warn("Unable to write the verification report: " + e);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static List<File> classpathFiles(VerifyParameters parameters) {
+        return parameters.getClasspathJarsAsList().stream().map(File::new).collect(Collectors.toList());
+    }
+
+    private static String buildFailureMessage(VerifyParameters parameters, String verifierOutput) {
+        String message = "Verification FAILED. Instrumentation module " + parameters.getInstrumentationJar().getName();
+        if (parameters.shouldSuccessfullyApply()) {
+            message += " SHOULD HAVE applied to " + parameters.getOriginalDependency() + " and did not.";
+        } else {
+            message += " SHOULD NOT HAVE applied to " + parameters.getOriginalDependency() + " but it did.";
+        }
+
+        if (parameters.getSpecifiedRange() != null) {
+            message += " You may need to adjust the range \"" + parameters.getSpecifiedRange() + "\".";
+        }
+
+        if (verifierOutput != null && verifierOutput.length() > 0) {
+            message += "\nVerifier output:\n" + verifierOutput;
+        }
+
+        return message;
+    }
+
+    private static void writeResult(VerifyParameters parameters, String result) {
+        File resultFile = parameters.getResultFile();
+        if (resultFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(resultFile.toPath().getParent());
+            List<String> lines = new ArrayList<>();
+            lines.add(result + " " + parameters.getOriginalDependency());
+            if (parameters.getResultKey() != null) {
+                lines.add(VerificationState.fingerprint(parameters.getResultKey(), parameters.shouldSuccessfullyApply()));
+            }
+            Files.write(resultFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write the verification result to " + resultFile, e);
+        }
+    }
+
+    private VersionVerifier() {}
+}
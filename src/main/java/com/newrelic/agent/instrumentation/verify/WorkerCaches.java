@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Releases the loaded agents and the open jars of a process that has stopped verifying.
+ *
+ * <p>{@link AgentVerifierService} clears them when the build finishes, but only in the Gradle daemon. Worker processes
+ * are kept by Gradle for the next build, so with {@code -PverifierIsolation=process} they would otherwise hold on to
+ * every agent they ever loaded. Once no verification has run for {@link #IDLE_MILLIS}, the caches are closed, and
+ * the next verification loads them again.</p>
+ */
+final class WorkerCaches {
+    static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Logger logger = Logging.getLogger(WorkerCaches.class);
+
+    // verifications hold the read lock, so the caches are only closed while none is using them
+    private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private static volatile long lastUsed;
+    private static ScheduledExecutorService scheduler;
+
+    private WorkerCaches() {
+    }
+
+    /**
+     * Marks the caches in use until {@link #exit()}.
+     */
+    static void enter() {
+        startScheduler();
+        lock.readLock().lock();
+    }
+
+    static void exit() {
+        lastUsed = System.nanoTime();
+        lock.readLock().unlock();
+    }
+
+    private static synchronized void startScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "verify-instrumentation-cache-release");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> releaseIfIdle(IDLE_MILLIS), IDLE_MILLIS, IDLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the caches if nothing is verifying and nothing has for the given time.
+     *
+     * @return true if they were closed
+     */
+    static boolean releaseIfIdle(long idleMillis) {
+        if (!lock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            if (lastUsed == 0 || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUsed) < idleMillis) {
+                return false;
+            }
+            lastUsed = 0;
+            try {
+                OpenJars.closeAll();
+            } catch (IOException e) {
+                logger.debug("Unable to close the open jars: " + e);
+            }
+            try {
+                AgentVerifier.closeAll();
+            } catch (IOException e) {
+                logger.debug("Unable to close the agent loaders: " + e);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
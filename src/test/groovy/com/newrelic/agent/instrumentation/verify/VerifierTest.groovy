@@ -101,6 +101,8 @@ class VerifierTest {
     @Test
     void testCompileVsVerifyDeps() {
         Project myproject = ProjectBuilder.builder().withName("myproject").build()
+        // registered first, so the plugin looks the ranges up through its client
+        myproject.gradle.sharedServices.registerIfAbsent(MavenClientService.NAME, StubMavenClientService, {})
         myproject.pluginManager.apply 'java'
         myproject.pluginManager.apply 'com.newrelic.gradle-verify-instrumentation-plugin'
         assertNotNull(myproject.tasks.verifyInstrumentation)
@@ -108,19 +110,6 @@ class VerifierTest {
         myproject.gradle.startParameter.setCurrentDir(myproject.getProjectDir())
         myproject.configurations.implementation.setCanBeResolved(true)
 
-        MavenClient.INSTANCE = new MavenClient() {
-            @Override
-            Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
-                if (rangeDep.startsWith("foo")) {
-                    return [
-                            'foo:bar:1.0'
-                            , 'foo:bar:2.0'
-                            , 'foo:bar:2.9'
-                    ]
-                }
-                return []
-            }
-        }
         myproject.configure(myproject.configurations.implementation) {
             implementation 'classpathdep:one:1.0'
         }
@@ -145,6 +134,27 @@ class VerifierTest {
         myproject.evaluate()
     }
 
+    static abstract class StubMavenClientService extends MavenClientService {
+        private final MavenClient client = new MavenClient() {
+            @Override
+            Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
+                if (rangeDep.startsWith("foo")) {
+                    return [
+                            'foo:bar:1.0'
+                            , 'foo:bar:2.0'
+                            , 'foo:bar:2.9'
+                    ]
+                }
+                return []
+            }
+        }
+
+        @Override
+        MavenClient getClient() {
+            return client
+        }
+    }
+
     private static List<Task> getPassesTasks(Set<Task> allTasks) {
         List<Task> passes = []
         for (Task task : allTasks) {
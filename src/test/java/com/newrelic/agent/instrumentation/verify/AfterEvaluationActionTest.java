@@ -75,6 +75,17 @@ class AfterEvaluationActionTest {
         assertTrue(testClass.projectRequiresVerification(mockProject));
     }
 
+    @Test
+    void shouldVerifyProjectWithSingleVersionTaskName() {
+        String projectPath = "/pathToProject/";
+        List<String> taskNames = Collections.singletonList(projectPath + ":verifyPass_foo_bar_1.2.3");
+        when(mockProject.getGradle().getStartParameter().getTaskNames()).thenReturn(taskNames);
+        when(mockProject.project(":" + projectPath).getProjectDir().getPath()).thenReturn(projectPath);
+        when(mockProject.getProjectDir().getPath()).thenReturn(projectPath);
+
+        assertTrue(testClass.projectRequiresVerification(mockProject));
+    }
+
     @Test
     void shouldNotVerifyProjectDueToTaskName() {
         List<String> taskNames = new ArrayList<>();
@@ -118,22 +129,30 @@ class AfterEvaluationActionTest {
     }
 
     @Test
-    void shouldBuildExcludedRegexAndVersions() {
-        MavenClient mockMavenClient = mock(MavenClient.class);
-        Set<String> excludeRegex = new HashSet<String>();
-        excludeRegex.add("testExcludedRegex:.*(RC|SEC|M)[0-9]*$'");
-        Set<String> resolvedExcludedVersions = new HashSet<String>();
-        Collections.addAll(resolvedExcludedVersions, "test:1.0", "test:2.0", "test:3.0");
-
-        when(mockVerifyOptions.excludeRegex()).thenReturn(excludeRegex);
-        when(mockVerifyOptions.exclude()).thenReturn(resolvedExcludedVersions);
-        when(mockMavenClient.resolveAvailableVersions(anyString(), anyList()))
-                .thenReturn(resolvedExcludedVersions);
-
-        Set<String> result = testClass.buildExcludedVersions(mockVerifyOptions, getRepositoryFunction.apply(mockProject), mockMavenClient);
-        //merge sets to produce expected
-        resolvedExcludedVersions.addAll(excludeRegex);
-
-        assertEquals(resolvedExcludedVersions, result);
+    void shouldBuildExcludedRegexRangesAndVersions() {
+        when(mockVerifyOptions.excludeRegex()).thenReturn(Collections.singleton("testExcludedRegex:.*(RC|SEC|M)[0-9]*$"));
+        when(mockVerifyOptions.exclude()).thenReturn(new HashSet<>(Arrays.asList("test:lib:1.0", "test:lib:[2.0,3.0)")));
+
+        ExclusionMatcher result = AfterEvaluationAction.buildExclusions(mockVerifyOptions);
+
+        assertTrue(result.matches("test:lib:1.0"));
+        assertFalse(result.matches("test:lib:1.5"));
+        assertTrue(result.matches("test:lib:2.0"));
+        assertTrue(result.matches("test:lib:2.9.1"));
+        assertFalse(result.matches("test:lib:3.0"));
+        assertTrue(result.matches("testExcludedRegex:lib:1.0-RC1"));
+        assertFalse(result.matches("testExcludedRegex:lib:1.0"));
+    }
+
+    @Test
+    void shouldCollectEveryRangeIncludingImplicitFailRange() {
+        when(mockVerifyOptions.passesOnly()).thenReturn(Collections.singletonMap("test:lib:[2.0,3.0)", Collections.emptyList()));
+        when(mockVerifyOptions.fails()).thenReturn(Collections.singletonMap("test:lib:[1.0,1.5)", Collections.emptyList()));
+        when(mockVerifyOptions.exclude()).thenReturn(Collections.singleton("test:lib:2.5"));
+
+        // excludes are matched locally, so they aren't looked up
+        Set<String> expected = new HashSet<>(Arrays.asList("test:lib:[2.0,3.0)", "test:lib:[1.0,1.5)", "test:lib:[0,)"));
+
+        assertEquals(expected, AfterEvaluationAction.collectRanges(mockVerifyOptions));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgentVerifierTest {
+    @Test
+    void shouldReuseVerifierForSameAgent() throws Throwable {
+        AgentVerifier first = AgentVerifier.forAgent(agentJar);
+        AgentVerifier second = AgentVerifier.forAgent(agentJar);
+
+        assertSame(first, second);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(first.verify(new PrintStream(output, true), "instrumentation.jar", Collections.singletonList("lib.jar")));
+        assertEquals("instrumentation.jar [lib.jar]", output.toString().trim());
+    }
+
+    @Test
+    void shouldLoadAgainWhenAgentChanges() throws Throwable {
+        AgentVerifier first = AgentVerifier.forAgent(agentJar);
+        buildAgentJar("// rebuilt");
+
+        assertNotSame(first, AgentVerifier.forAgent(agentJar));
+    }
+
+    @Test
+    void shouldLoadAgainAfterClose() throws Throwable {
+        AgentVerifier first = AgentVerifier.forAgent(agentJar);
+        AgentVerifier.closeAll();
+
+        assertNotSame(first, AgentVerifier.forAgent(agentJar));
+    }
+
+    @Test
+    void shouldReleaseTheAgentOnceTheWorkerIsIdle() throws Throwable {
+        WorkerCaches.enter();
+        AgentVerifier first;
+        try {
+            first = AgentVerifier.forAgent(agentJar);
+            assertFalse(WorkerCaches.releaseIfIdle(0), "released while in use");
+        } finally {
+            WorkerCaches.exit();
+        }
+        assertFalse(WorkerCaches.releaseIfIdle(WorkerCaches.IDLE_MILLIS));
+        assertSame(first, AgentVerifier.forAgent(agentJar));
+
+        assertTrue(WorkerCaches.releaseIfIdle(0));
+        assertNotSame(first, AgentVerifier.forAgent(agentJar));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        agentJar = tempDir.resolve("newrelic-agent.jar").toFile();
+        buildAgentJar("");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AgentVerifier.closeAll();
+    }
+
+    private void buildAgentJar(String comment) throws IOException {
+        StubAgent.build(tempDir, agentJar, comment);
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+
+    private File agentJar;
+}
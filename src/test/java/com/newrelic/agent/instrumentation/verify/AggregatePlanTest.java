@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.AGGREGATE_TASK_NAME;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AggregatePlanTest {
+    @Test
+    void shouldLookUpEveryProjectsRangesTogether() {
+        Project root = ProjectBuilder.builder().build();
+        Project first = ProjectBuilder.builder().withName("first").withParent(root).build();
+        Project second = ProjectBuilder.builder().withName("second").withParent(root).build();
+        Project skipped = ProjectBuilder.builder().withName("skipped").withParent(root).build();
+        List<RemoteRepository> repositories = Collections.singletonList(
+                new RemoteRepository.Builder("central", "default", "https://repo.example.com/").build());
+        MavenClient mavenClient = mock(MavenClient.class);
+
+        AfterEvaluationAction firstAction = action(first, true, repositories, mavenClient, "foo:bar:[1.0,)", "foo:bar:[0,)");
+        AfterEvaluationAction secondAction = action(second, true, repositories, mavenClient, "foo:bar:[2.0,)", "foo:bar:[0,)");
+        AfterEvaluationAction skippedAction = action(skipped, false, repositories, mavenClient, "foo:baz:[1.0,)");
+
+        AggregatePlan plan = AggregatePlan.forBuild(first, task -> {});
+        assertSame(plan, AggregatePlan.forBuild(second, task -> {}));
+        plan.plan(first, firstAction);
+        plan.plan(second, secondAction);
+        plan.plan(skipped, skippedAction);
+        plan.configure();
+
+        verify(mavenClient, times(1)).resolveAvailableVersions(
+                new LinkedHashSet<>(Arrays.asList("foo:bar:[1.0,)", "foo:bar:[0,)", "foo:bar:[2.0,)")), repositories);
+        verify(firstAction).verify(first, repositories, plan);
+        verify(secondAction).verify(second, repositories, plan);
+        verify(skippedAction, never()).verify(any(), any(), any());
+        assertNotNull(root.getTasks().findByName(AGGREGATE_TASK_NAME));
+    }
+
+    private static AfterEvaluationAction action(Project project, boolean shouldVerify, List<RemoteRepository> repositories,
+                                                MavenClient mavenClient, String... ranges) {
+        AfterEvaluationAction action = mock(AfterEvaluationAction.class);
+        when(action.shouldVerify(project)).thenReturn(shouldVerify);
+        when(action.getRepositories(project)).thenReturn(repositories);
+        when(action.getRanges()).thenReturn(new LinkedHashSet<>(Arrays.asList(ranges)));
+        when(action.getMavenClient()).thenReturn(mavenClient);
+        return action;
+    }
+}
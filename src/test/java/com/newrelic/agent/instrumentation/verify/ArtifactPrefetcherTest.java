@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArtifactPrefetcherTest {
+    @Test
+    void shouldDownloadEveryDependencySetWithTransitives() {
+        int failures;
+        try (ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(localDir.toFile(), 2)) {
+            failures = prefetcher.prefetch(Arrays.asList(
+                    Collections.singletonList("foo:bar:1.0"),
+                    Collections.singletonList("foo:bar:2.0")), repositories);
+        }
+
+        assertEquals(0, failures);
+        assertTrue(Files.isRegularFile(localDir.resolve("foo/bar/1.0/bar-1.0.jar")));
+        assertTrue(Files.isRegularFile(localDir.resolve("foo/bar/2.0/bar-2.0.jar")));
+        assertTrue(Files.isRegularFile(localDir.resolve("foo/dep/1.0/dep-1.0.jar")));
+    }
+
+    @Test
+    void shouldCountSetsThatCannotBeResolved() {
+        int failures;
+        try (ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(localDir.toFile(), 2)) {
+            failures = prefetcher.prefetch(Arrays.asList(
+                    Collections.singletonList("foo:bar:1.0"),
+                    Collections.singletonList("foo:missing:1.0")), repositories);
+        }
+
+        assertEquals(1, failures);
+        assertTrue(Files.isRegularFile(localDir.resolve("foo/bar/1.0/bar-1.0.jar")));
+    }
+
+    @Test
+    void shouldLimitTheConnectionsToEachRepository() throws Exception {
+        Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> mostActive = new ConcurrentHashMap<>();
+        ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+        ArtifactPrefetcher.LimitedTransporterFactory factory = new ArtifactPrefetcher.LimitedTransporterFactory(
+                new CountingTransporterFactory(active, mostActive),
+                repository -> permits.computeIfAbsent(repository.getUrl(), url -> new Semaphore(2)));
+        List<RemoteRepository> remotes = Arrays.asList(
+                new RemoteRepository.Builder("first", "default", "https://first.example.com/").build(),
+                new RemoteRepository.Builder("second", "default", "https://second.example.com/").build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                RemoteRepository remote = remotes.get(i % 2);
+                transfers.add(executor.submit(() -> {
+                    factory.newInstance(null, remote).get(new GetTask(URI.create("foo/bar")));
+                    return null;
+                }));
+            }
+            for (Future<?> transfer : transfers) {
+                transfer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, mostActive.get("https://first.example.com/").get());
+        assertEquals(2, mostActive.get("https://second.example.com/").get());
+    }
+
+    @Test
+    void shouldShareEachRepositorysConnectionsBetweenPrefetches() {
+        try (ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(localDir.toFile(), 2)) {
+            prefetcher.prefetch(Collections.singletonList(Collections.singletonList("foo:bar:1.0")), repositories);
+            Semaphore permits = prefetcher.permits(new RemoteRepository.Builder("other-project", "default", remoteDir.toUri().toString()).build());
+
+            prefetcher.prefetch(Collections.singletonList(Collections.singletonList("foo:bar:2.0")), repositories);
+
+            assertSame(permits, prefetcher.permits(repositories.get(0)));
+            assertEquals(2, permits.availablePermits());
+        }
+    }
+
+    /**
+     * Transporters that take a while over each download, counting how many run at once for each repository.
+     */
+    private static class CountingTransporterFactory implements TransporterFactory {
+        private final Map<String, AtomicInteger> active;
+        private final Map<String, AtomicInteger> mostActive;
+
+        CountingTransporterFactory(Map<String, AtomicInteger> active, Map<String, AtomicInteger> mostActive) {
+            this.active = active;
+            this.mostActive = mostActive;
+        }
+
+        @Override
+        public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository) {
+            AtomicInteger running = active.computeIfAbsent(repository.getUrl(), url -> new AtomicInteger());
+            AtomicInteger most = mostActive.computeIfAbsent(repository.getUrl(), url -> new AtomicInteger());
+            return new Transporter() {
+                @Override
+                public int classify(Throwable error) {
+                    return ERROR_OTHER;
+                }
+
+                @Override
+                public void peek(PeekTask task) {
+                }
+
+                @Override
+                public void get(GetTask task) throws Exception {
+                    most.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(50);
+                    running.decrementAndGet();
+                }
+
+                @Override
+                public void put(PutTask task) {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public float getPriority() {
+            return 0;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        remoteDir = tempDir.resolve("remote");
+        localDir = tempDir.resolve("local");
+        publish("foo", "bar", "1.0", "<dependencies><dependency><groupId>foo</groupId><artifactId>dep</artifactId><version>1.0</version></dependency></dependencies>");
+        publish("foo", "bar", "2.0", "");
+        publish("foo", "dep", "1.0", "");
+
+        repositories = Collections.singletonList(
+                new RemoteRepository.Builder("0", "default", remoteDir.toUri().toString()).build());
+    }
+
+    private void publish(String group, String name, String version, String dependencies) throws IOException {
+        Path dir = Files.createDirectories(remoteDir.resolve(group + "/" + name + "/" + version));
+        Files.write(dir.resolve(name + "-" + version + ".pom"), Collections.singletonList(
+                "<project><modelVersion>4.0.0</modelVersion><groupId>" + group + "</groupId><artifactId>" + name +
+                        "</artifactId><version>" + version + "</version>" + dependencies + "</project>"), StandardCharsets.UTF_8);
+        Files.write(dir.resolve(name + "-" + version + ".jar"), new byte[0]);
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+
+    private Path remoteDir;
+    private Path localDir;
+    private List<RemoteRepository> repositories;
+}
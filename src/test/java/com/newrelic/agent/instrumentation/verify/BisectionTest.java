@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BisectionTest {
+    @Test
+    void shouldOnlyVerifyTheEndsOfRunsThatBehaveAsDeclared() {
+        // fails before 3, passes from 3 to 96, fails from 97
+        List<Boolean> expected = expected(100, 3, 97);
+        Bisection bisection = new Bisection(expected);
+
+        assertEquals(new TreeSet<>(Arrays.asList(0, 2, 3, 96, 97, 99)), bisection.nextVersions());
+        run(bisection, expected, expected);
+
+        assertEquals(6, bisection.getVerifiedCount());
+        assertTrue(bisection.getMismatches().isEmpty());
+    }
+
+    @Test
+    void shouldFindWhereAPassingRunStopsPassing() {
+        List<Boolean> expected = expected(100, 3, 100);
+        // actually stops passing at 61
+        List<Boolean> actual = expected(100, 3, 61);
+        Bisection bisection = new Bisection(expected);
+
+        run(bisection, expected, actual);
+
+        assertEquals(1, bisection.getMismatches().size());
+        assertArrayEquals(new int[] { 61, 99 }, bisection.getMismatches().get(0));
+        // the ends of both runs, then log2 of the 97 versions in between
+        assertTrue(bisection.getVerifiedCount() <= 4 + 7, "verified " + bisection.getVerifiedCount());
+    }
+
+    @Test
+    void shouldFindWhereAFailingRunStartsPassing() {
+        List<Boolean> expected = expected(50, 40, 50);
+        // actually starts passing at 12
+        List<Boolean> actual = expected(50, 12, 50);
+        Bisection bisection = new Bisection(expected);
+
+        run(bisection, expected, actual);
+
+        assertEquals(1, bisection.getMismatches().size());
+        assertArrayEquals(new int[] { 12, 39 }, bisection.getMismatches().get(0));
+    }
+
+    @Test
+    void shouldReportOnlyTheVerifiedEndsOfARunWhoseEndsBothMisbehave() {
+        List<Boolean> expected = expected(10, 0, 10);
+        Bisection bisection = new Bisection(expected);
+
+        run(bisection, expected, Collections.nCopies(10, false));
+
+        assertEquals(2, bisection.getVerifiedCount());
+        assertEquals(2, bisection.getMismatches().size());
+        assertArrayEquals(new int[] { 0, 0 }, bisection.getMismatches().get(0));
+        assertArrayEquals(new int[] { 9, 9 }, bisection.getMismatches().get(1));
+    }
+
+    @Test
+    void shouldHandleASingleVersion() {
+        Bisection bisection = new Bisection(Collections.singletonList(true));
+
+        assertEquals(new TreeSet<>(Collections.singletonList(0)), bisection.nextVersions());
+        bisection.record(0, false);
+
+        assertTrue(bisection.nextVersions().isEmpty());
+        assertArrayEquals(new int[] { 0, 0 }, bisection.getMismatches().get(0));
+    }
+
+    /**
+     * Expected to pass from {@code firstPass} up to, but not including, {@code firstFail}.
+     */
+    private static List<Boolean> expected(int size, int firstPass, int firstFail) {
+        List<Boolean> expected = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            expected.add(i >= firstPass && i < firstFail);
+        }
+        return expected;
+    }
+
+    private static void run(Bisection bisection, List<Boolean> expected, List<Boolean> actual) {
+        for (SortedSet<Integer> next = bisection.nextVersions(); !next.isEmpty(); next = bisection.nextVersions()) {
+            for (int index : next) {
+                bisection.record(index, actual.get(index).equals(expected.get(index)));
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExclusionMatcherTest {
+    @Test
+    void shouldMatchExactVersionsOfTheirOwnArtifactOnly() {
+        ExclusionMatcher matcher = new ExclusionMatcher()
+                .exclude("com.example:lib:1.0")
+                .exclude("com.example:other:2.0");
+
+        assertTrue(matcher.matches("com.example:lib:1.0"));
+        assertFalse(matcher.matches("com.example:lib:2.0"));
+        assertFalse(matcher.matches("com.example:lib:1x0"));
+        assertFalse(matcher.matches("com.example:other:1.0"));
+    }
+
+    @Test
+    void shouldMatchRangesWithoutResolvingThem() {
+        ExclusionMatcher matcher = new ExclusionMatcher()
+                .exclude("com.example:lib:[1.0,2.0)")
+                .exclude("com.example:lib:[3.0,)");
+
+        assertFalse(matcher.matches("com.example:lib:0.9"));
+        assertTrue(matcher.matches("com.example:lib:1.0"));
+        assertTrue(matcher.matches("com.example:lib:1.10.2"));
+        assertFalse(matcher.matches("com.example:lib:2.0"));
+        // a pre-release sorts before its release, as it does when the range is resolved
+        assertTrue(matcher.matches("com.example:lib:2.0-RC1"));
+        assertTrue(matcher.matches("com.example:lib:4.2"));
+        assertFalse(matcher.matches("com.example:other:1.0"));
+    }
+
+    @Test
+    void shouldMatchRegexesForTheirArtifactAndEverywhere() {
+        ExclusionMatcher matcher = new ExclusionMatcher()
+                .excludeRegex("com.example:lib:.*-beta.*")
+                .excludeRegex("com.example:lib:.*-(RC|M)[0-9]*")
+                .excludeRegex(".*:.*:.*-SNAPSHOT");
+
+        assertTrue(matcher.matches("com.example:lib:1.0-beta2"));
+        assertTrue(matcher.matches("com.example:lib:1.0-RC1"));
+        assertFalse(matcher.matches("com.example:lib:1.0"));
+        assertFalse(matcher.matches("com.example:other:1.0-RC1"));
+        assertTrue(matcher.matches("com.example:other:1.0-SNAPSHOT"));
+    }
+
+    @Test
+    void shouldNotIndexRegexesThatCanMatchOtherArtifacts() {
+        ExclusionMatcher matcher = new ExclusionMatcher()
+                .excludeRegex("com.example:lib:1.0|com.example:other:2.0")
+                .excludeRegex("com.example:lib:?.*-alpha");
+
+        assertTrue(matcher.matches("com.example:lib:1.0"));
+        assertTrue(matcher.matches("com.example:other:2.0"));
+        assertTrue(matcher.matches("com.example:lib-1.0-alpha"));
+    }
+
+    @Test
+    void shouldKeepBackReferencesWorkingWhenCombined() {
+        ExclusionMatcher matcher = new ExclusionMatcher()
+                .excludeRegex("com.example:lib:1\\.0")
+                .excludeRegex("com.example:lib:(\\d)\\.\\1");
+
+        assertTrue(matcher.matches("com.example:lib:1.0"));
+        assertTrue(matcher.matches("com.example:lib:2.2"));
+        assertFalse(matcher.matches("com.example:lib:2.3"));
+        assertEquals(2, ExclusionMatcher.combine(Arrays.asList("a", "b", "(\\d)\\1")).size());
+    }
+
+    @Test
+    void shouldTreatStringsAsRegexes() {
+        ExclusionMatcher matcher = ExclusionMatcher.ofRegexes(Arrays.asList("foo:bar:2.0", "foo:baz:.*"));
+
+        assertTrue(matcher.matches("foo:bar:2.0"));
+        assertFalse(matcher.matches("foo:bar:1.0"));
+        assertTrue(matcher.matches("foo:baz:1.0"));
+    }
+
+    @Test
+    void shouldRejectInvalidRules() {
+        assertThrows(GradleException.class, () -> new ExclusionMatcher().exclude("com.example:lib"));
+        assertThrows(GradleException.class, () -> new ExclusionMatcher().exclude("com.example:lib:[1.0"));
+        assertThrows(PatternSyntaxException.class, () -> new ExclusionMatcher().excludeRegex("com.example:lib:(1.0"));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailFastServiceTest {
+    @Test
+    void shouldClearAnEarlierBuildsMarkerWhenTheFirstTaskIsChecked() throws IOException {
+        File marker = tempDir.resolve("fail-fast.txt").toFile();
+        Files.write(marker.toPath(), "verifyPass_foo_bar_1.0 foo:bar:1.0".getBytes());
+
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.resolve("project").toFile()).build();
+        Provider<FailFastService> service = project.getGradle().getSharedServices()
+                .registerIfAbsent(FailFastService.NAME, FailFastService.class, spec -> spec.getParameters().getMarkerFile().set(marker));
+        // nothing happens until the build executes
+        assertTrue(marker.isFile());
+
+        Task task = project.getTasks().create("verifyPass_foo_bar_2.0");
+        FailFastService.NotStopped notStopped = new FailFastService.NotStopped(service);
+        assertTrue(notStopped.isSatisfiedBy(task));
+        assertFalse(marker.exists());
+
+        FailFast.stop(marker, new VerifyParameters().setTaskName("verifyPass_foo_bar_2.0").setOriginalDependency("foo:bar:2.0"));
+        assertFalse(notStopped.isSatisfiedBy(task));
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
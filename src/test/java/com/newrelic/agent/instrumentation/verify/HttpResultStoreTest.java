@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpResultStoreTest {
+    @Test
+    void shouldLoadWhatWasStored() throws IOException {
+        HttpResultStore target = new HttpResultStore(storeUrl);
+        assertNull(target.load("aa11"));
+
+        target.store("aa11", new VerificationResult(true, "applied\n"));
+
+        VerificationResult result = target.load("aa11");
+        assertNotNull(result);
+        assertTrue(result.isApplied());
+        assertEquals("applied\n", result.getOutput());
+    }
+
+    @Test
+    void layeredStoreShouldCopyRemoteResultsLocally() throws IOException {
+        new HttpResultStore(storeUrl).store("aa11", new VerificationResult(true, ""));
+        LocalResultStore local = new LocalResultStore(localDir.toFile(), 1024 * 1024);
+        LayeredResultStore target = new LayeredResultStore(local, new HttpResultStore(storeUrl));
+
+        assertNotNull(target.load("aa11"));
+        server.stop(0);
+
+        assertNotNull(local.load("aa11"));
+        // an unreachable remote store is a miss, not a failure
+        assertNull(target.load("bb22"));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        storeUrl = "http://localhost:" + server.getAddress().getPort() + "/results";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            entries.put(path, ByteStreams.toByteArray(exchange.getRequestBody()));
+            exchange.sendResponseHeaders(201, -1);
+        } else if (entries.containsKey(path)) {
+            byte[] body = entries.get(path);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+        exchange.close();
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path localDir;
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private String storeUrl;
+}
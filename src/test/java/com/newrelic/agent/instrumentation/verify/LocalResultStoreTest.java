@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalResultStoreTest {
+    @Test
+    void shouldLoadWhatWasStored() throws IOException {
+        LocalResultStore target = new LocalResultStore(storeDir.toFile(), 1024 * 1024);
+        target.store(KEY_A, new VerificationResult(false, "missing class\n"));
+
+        VerificationResult result = target.load(KEY_A);
+
+        assertNotNull(result);
+        assertFalse(result.isApplied());
+        assertEquals("missing class\n", result.getOutput());
+        assertNull(target.load(KEY_B));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() throws IOException {
+        String output = new String(new char[100]).replace('\0', 'x');
+        // room for two entries, and trimmed to 240 bytes
+        LocalResultStore target = new LocalResultStore(storeDir.toFile(), 300);
+
+        target.store(KEY_A, new VerificationResult(true, output));
+        target.store(KEY_B, new VerificationResult(true, output));
+        storeDir.resolve(KEY_A.substring(0, 2)).resolve(KEY_A).toFile().setLastModified(System.currentTimeMillis() - 60_000);
+        storeDir.resolve(KEY_B.substring(0, 2)).resolve(KEY_B).toFile().setLastModified(System.currentTimeMillis() - 120_000);
+        // reading A makes B the least recently used
+        target.load(KEY_A);
+        target.store(KEY_C, new VerificationResult(true, output));
+
+        assertNotNull(target.load(KEY_A));
+        assertNull(target.load(KEY_B));
+        assertNotNull(target.load(KEY_C));
+    }
+
+    @Test
+    void keyShouldDependOnContentNotLocation() throws IOException {
+        File agent = write("agent/newrelic-agent.jar", "agent");
+        File instrumentation = write("instrumentation.jar", "instrumentation");
+        File library = write("library-1.0.jar", "library");
+        File sameLibrary = write("elsewhere/library-1.0.jar", "library");
+        File otherLibrary = write("library-2.0.jar", "library 2");
+
+        String key = ResultStore.key(agent, instrumentation, Collections.singletonList(library));
+
+        assertEquals(key, ResultStore.key(agent, instrumentation, Collections.singletonList(sameLibrary)));
+        assertNotEquals(key, ResultStore.key(agent, instrumentation, Collections.singletonList(otherLibrary)));
+        assertNotEquals(key, ResultStore.key(agent, instrumentation, Collections.emptyList()));
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path path = tempDir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(path.toFile().isFile());
+        return path.toFile();
+    }
+
+    private static final String KEY_A = "aa11";
+    private static final String KEY_B = "bb22";
+    private static final String KEY_C = "cc33";
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+
+    @SuppressWarnings("WeakerAccess")
+    @TempDir
+    Path storeDir;
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MavenClientTest {
+    @Test
+    void shouldResolveRangeFromRepository() {
+        Collection<String> versions = target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+
+        assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:2.0", "foo:bar:2.9"), versions);
+        assertEquals(1, target.getLookupCount());
+        assertEquals(0, target.getCacheHitCount());
+    }
+
+    @Test
+    void shouldServeRepeatedRangeFromCache() {
+        target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+        Collection<String> versions = target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+
+        assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:2.0", "foo:bar:2.9"), versions);
+        assertEquals(2, target.getLookupCount());
+        assertEquals(1, target.getCacheHitCount());
+    }
+
+    @Test
+    void shouldResetStatisticsOnClose() throws IOException {
+        target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+        target.close();
+
+        assertEquals(0, target.getLookupCount());
+        assertEquals(Arrays.asList("foo:bar:3.0", "foo:bar:3.3"), target.resolveAvailableVersions("foo:bar:[3.0,)", repositories));
+        assertEquals(0, target.getCacheHitCount());
+    }
+
+    @Test
+    void shouldResolveBatchAndRememberResults() {
+        Map<String, Collection<String>> results = target.resolveAvailableVersions(
+                Arrays.asList("foo:bar:[1.0,3.0)", "foo:bar:[3.0,)", "foo:bar:(,1.0)"), repositories);
+
+        assertEquals(Arrays.asList("foo:bar:[1.0,3.0)", "foo:bar:[3.0,)", "foo:bar:(,1.0)"), new ArrayList<>(results.keySet()));
+        assertEquals(Arrays.asList("foo:bar:3.0", "foo:bar:3.3"), results.get("foo:bar:[3.0,)"));
+        assertEquals(Collections.singletonList("foo:bar:0.5"), results.get("foo:bar:(,1.0)"));
+
+        target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+        assertEquals(1, target.getCacheHitCount());
+    }
+
+    @Test
+    void shouldFetchVersionListOncePerArtifact() {
+        target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories);
+        target.resolveAvailableVersions("foo:bar:[3.0,)", repositories);
+        target.resolveAvailableVersions("foo:bar:[0,)", repositories);
+
+        assertEquals(3, target.getLookupCount());
+        assertEquals(0, target.getCacheHitCount());
+        assertEquals(1, target.getVersionListFetchCount());
+    }
+
+    @Test
+    void shouldEvaluateRangeLocallyWithMetadataCache() {
+        target.setMetadataCache(new MetadataCache(repositoryDir.resolve("cache").toFile(), Duration.ofHours(1), false));
+
+        assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:2.0", "foo:bar:2.9"), target.resolveAvailableVersions("foo:bar:[1.0,3.0)", repositories));
+        assertEquals(Collections.singletonList("foo:bar:2.0"), target.resolveAvailableVersions("foo:bar:2.0", repositories));
+    }
+
+    @Test
+    void shouldReuseConnectionsAcrossLookups() throws IOException {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            boolean metadata = exchange.getRequestURI().getPath().endsWith("/maven-metadata.xml");
+            byte[] body = (metadata
+                    ? "<metadata><versioning><versions><version>1.0</version><version>2.0</version></versions></versioning></metadata>"
+                    : "not found").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(metadata ? 200 : 404, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            // the session's local repository outlives the test, so a fresh id keeps metadata it cached out of the way
+            List<RemoteRepository> httpRepositories = Collections.singletonList(new RemoteRepository.Builder(
+                    "connections-" + System.nanoTime(), "default", "http://localhost:" + server.getAddress().getPort() + "/").build());
+
+            assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:2.0"), target.resolveAvailableVersions("foo:bar:[1.0,)", httpRepositories));
+            assertEquals(Arrays.asList("foo:baz:1.0", "foo:baz:2.0"), target.resolveAvailableVersions("foo:baz:[1.0,)", httpRepositories));
+        } finally {
+            server.stop(0);
+        }
+
+        assertEquals(2, target.getVersionListFetchCount());
+        // both lookups, and their checksum requests, went over the one pooled connection
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void shouldFailOfflineWithoutCachedMetadata() {
+        target.setMetadataCache(new MetadataCache(repositoryDir.resolve("cache").toFile(), Duration.ofHours(1), true));
+        // never contacted while offline
+        List<RemoteRepository> remoteRepositories = Collections.singletonList(
+                new RemoteRepository.Builder("0", "default", "http://localhost:1/repo").build());
+
+        assertThrows(GradleException.class, () -> target.resolveAvailableVersions("foo:bar:[1.0,)", remoteRepositories));
+        assertThrows(GradleException.class, () -> target.resolveAvailableVersions(
+                Arrays.asList("foo:bar:[1.0,)", "foo:baz:[1.0,)"), remoteRepositories));
+    }
+
+    @Test
+    void shouldFailWhenTheMetadataCannotBeFetched() {
+        target.setMetadataCache(new MetadataCache(repositoryDir.resolve("cache").toFile(), Duration.ofHours(1), false));
+        // nothing listens there
+        List<RemoteRepository> remoteRepositories = Collections.singletonList(
+                new RemoteRepository.Builder("0", "default", "http://localhost:1/repo").build());
+
+        GradleException exception = assertThrows(GradleException.class, () -> target.resolveAvailableVersions("foo:bar:[1.0,)", remoteRepositories));
+        assertTrue(exception.getMessage().contains("foo:bar:[1.0,)"), exception.getMessage());
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path metadataDir = Files.createDirectories(repositoryDir.resolve("foo/bar"));
+        Files.write(metadataDir.resolve("maven-metadata.xml"), Collections.singletonList(
+                "<metadata><groupId>foo</groupId><artifactId>bar</artifactId><versioning><versions>" +
+                        "<version>0.5</version><version>1.0</version><version>2.0</version><version>2.9</version>" +
+                        "<version>3.0</version><version>3.3</version>" +
+                        "</versions></versioning></metadata>"), StandardCharsets.UTF_8);
+
+        repositories = Collections.singletonList(
+                new RemoteRepository.Builder("0", "default", repositoryDir.toUri().toString()).build());
+        target = new MavenClient();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        target.close();
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path repositoryDir;
+
+    private MavenClient target;
+    private List<RemoteRepository> repositories;
+}
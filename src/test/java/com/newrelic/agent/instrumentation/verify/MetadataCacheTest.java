@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MetadataCacheTest {
+    @Test
+    void shouldServeFreshEntryWithoutRequest() throws IOException {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ofHours(1), false);
+
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+
+        assertEquals(1, requests.get());
+        assertEquals(0, notModified.get());
+    }
+
+    @Test
+    void shouldRevalidateExpiredEntry() throws IOException {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ZERO, false);
+
+        target.getVersions(repositoryUrl, "foo", "bar");
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+
+        assertEquals(2, requests.get());
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    void shouldCacheMissingMetadata() throws IOException {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ofHours(1), false);
+
+        assertEquals(Collections.emptyList(), target.getVersions(repositoryUrl, "foo", "missing"));
+        assertEquals(Collections.emptyList(), target.getVersions(repositoryUrl, "foo", "missing"));
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void shouldServeExpiredEntryWhenOffline() throws IOException {
+        new MetadataCache(cacheDir.toFile(), Duration.ZERO, false).getVersions(repositoryUrl, "foo", "bar");
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ZERO, true);
+
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void shouldFailOfflineWithoutEntry() {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ofHours(1), true);
+
+        assertThrows(GradleException.class, () -> target.getVersions(repositoryUrl, "foo", "bar"));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    void shouldReleaseTheConnectionOnAnErrorResponse() throws IOException {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ofHours(1), false);
+
+        assertThrows(IOException.class, () -> target.getVersions(repositoryUrl, "foo", "broken"));
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+
+        // the error body was drained, so the second request went out on the same keep-alive connection
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void shouldFallBackToStaleEntryWhenRepositoryIsDown() throws IOException {
+        MetadataCache target = new MetadataCache(cacheDir.toFile(), Duration.ZERO, false);
+        target.getVersions(repositoryUrl, "foo", "bar");
+        server.stop(0);
+
+        assertEquals(Arrays.asList("1.0", "2.0"), target.getVersions(repositoryUrl, "foo", "bar"));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        repositoryUrl = "http://localhost:" + server.getAddress().getPort() + "/repo";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        if (exchange.getRequestURI().getPath().equals("/repo/foo/broken/maven-metadata.xml")) {
+            byte[] body = "broken".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } else if (!exchange.getRequestURI().getPath().equals("/repo/foo/bar/maven-metadata.xml")) {
+            exchange.sendResponseHeaders(404, -1);
+        } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            byte[] body = METADATA.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static final String ETAG = "\"v1\"";
+    private static final String METADATA = "<metadata><groupId>foo</groupId><artifactId>bar</artifactId><version>2.0</version>" +
+            "<versioning><versions><version>1.0</version><version>2.0</version></versions></versioning></metadata>";
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path cacheDir;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private String repositoryUrl;
+}
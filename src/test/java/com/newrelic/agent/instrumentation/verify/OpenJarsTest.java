@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenJarsTest {
+    @Test
+    void shouldMeasureTheCentralDirectory() throws IOException {
+        String[] entries = { "com/example/Foo.class", "com/example/Foo$Bar.class", "com/example/config.properties" };
+        OpenJar withComment = OpenJars.open(jar("commented.jar", "a comment after the central directory", entries));
+        OpenJar withoutComment = OpenJars.open(jar("plain.jar", null, entries));
+        OpenJar smaller = OpenJars.open(jar("smaller.jar", null, "com/example/Foo.class"));
+
+        assertTrue(withComment.getRetainedBytes() > smaller.getRetainedBytes());
+        assertEquals(withoutComment.getRetainedBytes(), withComment.getRetainedBytes());
+    }
+
+    @Test
+    void shouldOpenAJarAgainOnceItChanges() throws IOException {
+        File jar = jar("lib.jar", null, "com/example/Foo.class");
+        File copy = tempDir.resolve("copy.jar").toFile();
+        Files.copy(jar.toPath(), copy.toPath());
+
+        OpenJar open = OpenJars.open(jar);
+        assertSame(open, OpenJars.open(jar));
+        assertNotSame(open, OpenJars.open(copy));
+
+        jar("lib.jar", null, "com/example/Foo.class", "com/example/Bar.class");
+        assertNotSame(open, OpenJars.open(jar));
+    }
+
+    @Test
+    void shouldPassEveryJarThroughInOrder() throws IOException {
+        String first = jar("first.jar", null, "com/example/Foo.class", "com/example/Bar.class").getPath();
+        String shadowed = jar("shadowed.jar", null, "com/example/Foo.class").getPath();
+        String resources = jar("resources.jar", null, "com/example/config.properties").getPath();
+        String second = jar("second.jar", null, "com/example/Foo.class", "com/example/Baz.class").getPath();
+        String missing = tempDir.resolve("missing.jar").toString();
+
+        assertEquals(Arrays.asList(first, shadowed, missing, resources, second),
+                OpenJars.classpath(Arrays.asList(first, shadowed, missing, resources, second)).getJars());
+    }
+
+    @Test
+    void shouldPassThroughFilesThatAreNotJars() throws IOException {
+        Path notAJar = Files.write(tempDir.resolve("not-a.jar"), "not a jar".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(OpenJars.open(notAJar.toFile()));
+        assertNull(OpenJars.open(tempDir.toFile()));
+        assertEquals(Arrays.asList(notAJar.toString(), tempDir.toString()),
+                OpenJars.classpath(Arrays.asList(notAJar.toString(), tempDir.toString())).getJars());
+    }
+
+    @Test
+    void shouldCountJarsAlreadyOpen() throws IOException {
+        List<String> first = Arrays.asList(jar("a.jar", null, "a/A.class").getPath(), jar("b.jar", null, "b/B.class").getPath());
+        List<String> second = Arrays.asList(first.get(1), jar("c.jar", null, "c/C.class").getPath());
+
+        OpenJars.Classpath firstClasspath = OpenJars.classpath(first);
+        OpenJars.Classpath secondClasspath = OpenJars.classpath(second);
+
+        assertEquals(0, firstClasspath.getReused());
+        assertEquals(2, firstClasspath.getOpened());
+        assertEquals(1, secondClasspath.getReused());
+        assertEquals(1, secondClasspath.getOpened());
+        assertEquals(1, OpenJars.getReused());
+        assertEquals(3, OpenJars.getOpened());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedJarsWhenFull() throws IOException {
+        File a = jar("a.jar", null, "a/A.class");
+        File b = jar("b.jar", null, "b/B.class");
+        File c = jar("c.jar", null, "c/C.class");
+        OpenJar openA = OpenJars.open(a);
+        OpenJar openB = OpenJars.open(b);
+        // room for two of them
+        OpenJars.setMaxBytes(openA.getRetainedBytes() + openB.getRetainedBytes());
+
+        assertSame(openA, OpenJars.open(a));
+        OpenJars.open(c);
+
+        assertSame(openA, OpenJars.open(a));
+        assertNotSame(openB, OpenJars.open(b));
+        assertTrue(OpenJars.getRetainedBytes() <= openA.getRetainedBytes() + openB.getRetainedBytes());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        OpenJars.closeAll();
+    }
+
+    private File jar(String name, String comment, String... entries) throws IOException {
+        File jar = tempDir.resolve(name).toFile();
+        try (OutputStream output = Files.newOutputStream(jar.toPath());
+             JarOutputStream jarOutput = new JarOutputStream(output)) {
+            for (String entry : entries) {
+                jarOutput.putNextEntry(new JarEntry(entry));
+                // the jar's name makes the same class differ between jars
+                jarOutput.write((name + " " + entry).getBytes(StandardCharsets.UTF_8));
+                jarOutput.closeEntry();
+            }
+            if (comment != null) {
+                jarOutput.setComment(comment);
+            }
+        }
+        return jar;
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
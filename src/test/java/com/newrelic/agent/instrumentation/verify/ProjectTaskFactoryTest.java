@@ -13,17 +13,20 @@ import org.gradle.api.GradleScriptException;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.UnknownTaskException;
+import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.DependencySet;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.opentest4j.AssertionFailedError;
 import org.slf4j.helpers.NOPLogger;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
@@ -39,6 +42,7 @@ import java.util.stream.Stream;
 
 import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.VERIFIER_TASK_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -148,7 +152,38 @@ class ProjectTaskFactoryTest {
         givenProjectIsConfigured(ProjectTweaks.WITHOUT_AGENT);
         givenVersionsOneToThreeArePassesOnly();
         givenTaskFactoryWithNoExcludes();
-        thenPassesOnlyTasksFailToBuild(GradleScriptException.class);
+        whenPassesOnlyTasksAreRegistered();
+        thenCreatingTheTasksFails(GradleScriptException.class);
+    }
+
+    @Test
+    void shouldNotResolveTheAgentUntilATaskIsCreated() {
+        givenMavenClientReturnsVersionTwo();
+        givenProjectIsConfigured();
+        givenVersionsOneToThreeArePassesOnly();
+        givenTaskFactoryWithNoExcludes();
+        whenPassesOnlyTasksAreRegistered();
+        thenTheAgentIsResolved(false);
+        assertEquals(registeredTasks.size(), target.registered(registeredTasks).size());
+        thenTheAgentIsResolved(false);
+        registeredTasks.get(0).get();
+        thenTheAgentIsResolved(true);
+    }
+
+    @Test
+    void shouldVerifyWhatFailedLastTimeFirst() throws IOException {
+        givenMavenClientReturnsVersionsInsideAndOutsidePassRange();
+        givenProjectIsConfigured();
+        givenVersionsOneToThreeArePassesOnly();
+        givenTaskFactoryWithNoExcludes();
+        whenPassesOnlyTasksAreRegistered();
+
+        String lastFailed = registeredTasks.get(registeredTasks.size() - 1).getName();
+        VerificationState state = new VerificationState(new File(project.getBuildDir(), "verifier/verified-versions.properties"));
+        state.failed(lastFailed);
+        state.save();
+
+        assertEquals(lastFailed, target.prioritize(registeredTasks).get(0).getName());
     }
 
     @Test
@@ -161,7 +196,7 @@ class ProjectTaskFactoryTest {
     }
 
     private void givenMavenClientReturnsNoResults() {
-        MavenClient.INSTANCE = new MavenClient() {
+        mavenClient = new MavenClient() {
             @Override
             public Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
                 return Collections.emptyList();
@@ -170,7 +205,7 @@ class ProjectTaskFactoryTest {
     }
 
     private void givenMavenClientReturnsVersionsOutsidePassRange() {
-        MavenClient.INSTANCE = new MavenClient() {
+        mavenClient = new MavenClient() {
             @Override
             public Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
                 return (rangeDep.contains(":[0,)")) // implicit fails
@@ -181,7 +216,7 @@ class ProjectTaskFactoryTest {
     }
 
     private void givenMavenClientReturnsVersionsInsideAndOutsidePassRange() {
-        MavenClient.INSTANCE = new MavenClient() {
+        mavenClient = new MavenClient() {
             @Override
             public Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
                 if (rangeDep.contains(":[0,)")) // implicit fails
@@ -201,7 +236,7 @@ class ProjectTaskFactoryTest {
     }
 
     private void givenMavenClientReturnsVersionTwo() {
-        MavenClient.INSTANCE = new MavenClient() {
+        mavenClient = new MavenClient() {
             @Override
             public Collection<String> resolveAvailableVersions(String rangeDep, List<RemoteRepository> repositories) {
                 return Collections.singletonList("foo:bar:2.0");
@@ -229,12 +264,12 @@ class ProjectTaskFactoryTest {
     }
 
     private void givenTaskFactoryExcludingVersionTwo() {
-        target = new ProjectTaskFactory(project, Collections.singletonList("foo:bar:2.0"), NOPLogger.NOP_LOGGER, tempDir.toFile());
+        target = new ProjectTaskFactory(project, Collections.singletonList("foo:bar:2.0"), NOPLogger.NOP_LOGGER, tempDir.toFile(), mavenClient);
         target.setPassesFile(verifyOptions.passesFileName);
     }
 
     private void givenTaskFactoryWithNoExcludes() {
-        target = new ProjectTaskFactory(project, Collections.emptySet(), NOPLogger.NOP_LOGGER, tempDir.toFile());
+        target = new ProjectTaskFactory(project, Collections.emptySet(), NOPLogger.NOP_LOGGER, tempDir.toFile(), mavenClient);
         target.setPassesFile(verifyOptions.passesFileName);
     }
 
@@ -307,15 +342,19 @@ class ProjectTaskFactoryTest {
     }
 
     private void whenPassFailTasksAreBuilt() {
-        resultTasks = target.buildExplicitPassFailTasks(verifyOptions);
+        resultTasks = target.buildExplicitPassFailTasks(verifyOptions).map(TaskProvider::get);
     }
 
     private void whenPassesOnlyTasksAreBuilt() {
-        resultTasks = target.buildTasksForPassesOnly(verifyOptions);
+        resultTasks = target.buildTasksForPassesOnly(verifyOptions).map(TaskProvider::get);
+    }
+
+    private void whenPassesOnlyTasksAreRegistered() {
+        registeredTasks = target.buildTasksForPassesOnly(verifyOptions).collect(Collectors.toList());
     }
 
     private void whenClasspathTaskIsBuilt() {
-        resultTasks = target.buildClasspathTasks();
+        resultTasks = target.buildClasspathTasks().map(TaskProvider::get);
     }
 
     private void thenASingleVersionTwoTaskResults() {
@@ -384,20 +423,31 @@ class ProjectTaskFactoryTest {
 
     private <T extends Throwable> void thenPassesOnlyTasksFailToBuild(Class<T> exceptionClass) {
         assertThrows(exceptionClass, () -> {
-            Set<? extends Task> actualTasks = target.buildTasksForPassesOnly(verifyOptions).collect(Collectors.toSet());
+            Set<? extends TaskProvider<VerifyTask>> actualTasks = target.buildTasksForPassesOnly(verifyOptions).collect(Collectors.toSet());
             // for easy breakpoint; we should never get here.
             assertEquals(0, actualTasks.size());
         });
     }
 
-    @BeforeEach
-    void classSetUp() {
-        savedClient = MavenClient.INSTANCE;
+    private <T extends Throwable> void thenCreatingTheTasksFails(Class<T> exceptionClass) {
+        assertTrue(!registeredTasks.isEmpty(), "Didn't register any tasks to verify :-(");
+        for (TaskProvider<VerifyTask> task : registeredTasks) {
+            Throwable thrown = assertThrows(RuntimeException.class, task::get);
+            while (thrown != null && !exceptionClass.isInstance(thrown)) {
+                thrown = thrown.getCause();
+            }
+            assertNotNull(thrown, "Creating " + task.getName() + " didn't fail with a " + exceptionClass.getSimpleName());
+        }
+    }
+
+    private void thenTheAgentIsResolved(boolean resolved) {
+        Configuration agent = project.getConfigurations().getByName(VERIFIER_TASK_NAME);
+        assertEquals(resolved, agent.getState() != Configuration.State.UNRESOLVED);
     }
 
     @AfterEach
-    void classTearDown() {
-        MavenClient.INSTANCE = savedClient;
+    void classTearDown() throws IOException {
+        mavenClient.close();
     }
 
     @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
@@ -405,10 +455,11 @@ class ProjectTaskFactoryTest {
     Path tempDir;
 
     private Stream<? extends Task> resultTasks;
+    private List<TaskProvider<VerifyTask>> registeredTasks;
     private ProjectTaskFactory target;
     private VerifyInstrumentationOptions verifyOptions;
     private Project project;
-    private MavenClient savedClient;
+    private MavenClient mavenClient = new MavenClient();
 
     enum ProjectTweaks {
         WITHOUT_AGENT,
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordResultsTaskTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldAppendOnlyMissingPasses() throws IOException {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+        Files.write(passesFile.toPath(), Collections.singletonList("instrumentation foo:bar:1.0"), StandardCharsets.UTF_8);
+
+        RecordResultsTask task = newTask();
+        task.record("verifyPass_foo_bar_1.0", result("1.0", VersionVerifier.RESULT_PASSED), passesFile, "instrumentation foo:bar:1.0\n");
+        task.record("verifyPass_foo_bar_2.0", result("2.0", VersionVerifier.RESULT_PASSED), passesFile, "instrumentation foo:bar:2.0\n");
+        task.record("verifyPass_foo_bar_3.0", result("3.0", VersionVerifier.RESULT_FAILED), passesFile, "instrumentation foo:bar:3.0\n");
+        task.record("verifyPass_foo_bar_4.0", tempDir.resolve("missing.txt").toFile(), passesFile, "instrumentation foo:bar:4.0\n");
+        task.recordResults();
+
+        assertEquals(Arrays.asList("instrumentation foo:bar:1.0", "instrumentation foo:bar:2.0"),
+                Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldCreateThePassesFile() throws IOException {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+
+        RecordResultsTask task = newTask();
+        task.record("verifyPass_foo_bar_1.0", result("1.0", VersionVerifier.RESULT_PASSED), passesFile, "instrumentation foo:bar:1.0\n");
+        task.recordResults();
+
+        assertEquals(Collections.singletonList("instrumentation foo:bar:1.0"),
+                Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRecordVerificationState() throws IOException {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+        File stateFile = tempDir.resolve("verified-versions.properties").toFile();
+        VerificationState previous = new VerificationState(stateFile);
+        previous.passed("verifyPass_foo_bar_3.0", "old");
+        previous.save();
+
+        RecordResultsTask task = newTask();
+        task.setStateFile(stateFile);
+        File passed = result("1.0", VersionVerifier.RESULT_PASSED);
+        Files.write(passed.toPath(), Collections.singletonList("fingerprint-1"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        task.record("verifyPass_foo_bar_1.0", passed, passesFile, "instrumentation foo:bar:1.0\n");
+        task.record("verifyPass_foo_bar_3.0", result("3.0", VersionVerifier.RESULT_FAILED), passesFile, "instrumentation foo:bar:3.0\n");
+        task.recordResults();
+
+        VerificationState state = new VerificationState(stateFile);
+        assertTrue(state.isCurrent("verifyPass_foo_bar_1.0", "fingerprint-1"));
+        assertFalse(state.isCurrent("verifyPass_foo_bar_1.0", "fingerprint-2"));
+        assertFalse(state.isCurrent("verifyPass_foo_bar_3.0", "old"));
+        assertTrue(state.lastFailed("verifyPass_foo_bar_3.0"));
+        assertFalse(state.lastFailed("verifyPass_foo_bar_1.0"));
+    }
+
+    @Test
+    void shouldNotRecordTheStaleResultOfASkippedVerification() throws IOException {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+        File stale = result("1.0", VersionVerifier.RESULT_PASSED);
+
+        RecordResultsTask task = newTask();
+        VerifyTask verifyTask = task.getProject().getTasks().create("verifyPass_foo_bar_1.0", VerifyTask.class);
+        verifyTask.setResultFile(stale);
+        verifyTask.onlyIf(new VerifyTask.ClearsResultWhenSkipped(skipped -> false));
+        assertFalse(verifyTask.getOnlyIf().isSatisfiedBy(verifyTask));
+
+        task.record("verifyPass_foo_bar_1.0", stale, passesFile, "instrumentation foo:bar:1.0\n");
+        task.recordResults();
+
+        assertFalse(passesFile.exists());
+    }
+
+    private RecordResultsTask newTask() {
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.resolve("project").toFile()).build();
+        return project.getTasks().create(VerificationPlugin.RESULTS_TASK_NAME, RecordResultsTask.class);
+    }
+
+    private File result(String version, String result) throws IOException {
+        File resultFile = tempDir.resolve("result-" + version + ".txt").toFile();
+        Files.write(resultFile.toPath(), Collections.singletonList(result + " foo:bar:" + version), StandardCharsets.UTF_8);
+        return resultFile;
+    }
+}
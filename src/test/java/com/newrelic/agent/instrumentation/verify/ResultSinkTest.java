@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultSinkTest {
+    @Test
+    void shouldWriteEveryLineFromConcurrentWorkers() throws Exception {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+        File failuresFile = tempDir.resolve("failures.txt").toFile();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < 8; worker++) {
+                int id = worker;
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        ResultSink.append(i % 10 == 0 ? failuresFile : passesFile, "instrumentation foo:bar:" + id + "." + i + "\n");
+                        ResultSink.flush();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> passes = Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8);
+        List<String> failures = Files.readAllLines(failuresFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(720, passes.size());
+        assertEquals(80, failures.size());
+        Set<String> unique = new HashSet<>(passes);
+        unique.addAll(failures);
+        assertEquals(800, unique.size());
+        assertFalse(unique.stream().anyMatch(line -> !line.matches("instrumentation foo:bar:\\d+\\.\\d+")));
+    }
+
+    @Test
+    void shouldCreateMissingDirectories() throws IOException {
+        File passesFile = tempDir.resolve("verifier/passes.txt").toFile();
+
+        ResultSink.append(passesFile, "instrumentation foo:bar:1.0\n");
+        ResultSink.flush();
+
+        assertEquals(1, Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void shouldReportAFailedWriteOnlyToTheThreadThatQueuedTheLine() throws Exception {
+        File passesFile = tempDir.resolve("passes.txt").toFile();
+        // a file where its directory should be, so it can't be written
+        Files.write(tempDir.resolve("blocked"), new byte[0]);
+        File blockedFile = tempDir.resolve("blocked/failures.txt").toFile();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> blocked = executor.submit(() -> {
+                ResultSink.append(blockedFile, "instrumentation foo:bar:1.0\n");
+                ResultSink.flush();
+                return null;
+            });
+            Future<?> passed = executor.submit(() -> {
+                ResultSink.append(passesFile, "instrumentation foo:bar:2.0\n");
+                ResultSink.flush();
+                return null;
+            });
+
+            ExecutionException failure = assertThrows(ExecutionException.class, blocked::get);
+            assertTrue(failure.getCause() instanceof IOException);
+            passed.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8).size());
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.DURATIONS_FILE_PROPERTY;
+import static com.newrelic.agent.instrumentation.verify.VerificationPlugin.SHARD_PROPERTY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardPlanTest {
+    @Test
+    void shouldBalanceShardsByDuration() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        durations.put(":a:verifyPass_foo_bar_1.0", 700L);
+        durations.put(":a:verifyPass_foo_bar_2.0", 500L);
+        durations.put(":b:verifyPass_foo_baz_1.0", 400L);
+        durations.put(":b:verifyPass_foo_baz_2.0", 300L);
+        durations.put(":b:verifyFail_foo_baz_0.1", 200L);
+
+        long[] loads = new long[2];
+        for (int index = 1; index <= 2; index++) {
+            ShardPlan plan = new ShardPlan(index, 2, durations);
+            for (Map.Entry<String, Long> duration : durations.entrySet()) {
+                if (plan.includes(duration.getKey())) {
+                    loads[index - 1] += duration.getValue();
+                }
+            }
+        }
+
+        // longest first, each to the lighter shard: 700 + 300 against 500 + 400 + 200
+        assertEquals(1000, loads[0]);
+        assertEquals(1100, loads[1]);
+    }
+
+    @Test
+    void shouldPutEveryVerificationInExactlyOneShard() {
+        Map<String, Long> durations = new HashMap<>();
+        durations.put(":a:verifyPass_foo_bar_1.0", 100L);
+        List<String> taskPaths = new ArrayList<>(durations.keySet());
+        for (int i = 0; i < 50; i++) {
+            // not in the durations file yet
+            taskPaths.add(":b:verifyPass_foo_baz_" + i);
+        }
+
+        List<ShardPlan> shards = Arrays.asList(new ShardPlan(1, 3, durations), new ShardPlan(2, 3, durations), new ShardPlan(3, 3, durations));
+        for (String taskPath : taskPaths) {
+            assertEquals(1, shards.stream().filter(shard -> shard.includes(taskPath)).count(), taskPath);
+        }
+    }
+
+    @Test
+    void shouldReadTheShardAndDurationsFromTheBuild() throws IOException {
+        File durationsFile = tempDir.resolve("durations.properties").toFile();
+        VerificationDurations durations = VerificationDurations.read(durationsFile);
+        durations.addReportLine("{\"task\":\"verifyPass_foo_bar_1.0\",\"project\":\":a\",\"fromStore\":false,\"timings\":{\"total\":900}}");
+        durations.addReportLine("{\"task\":\"verifyPass_foo_bar_2.0\",\"project\":\":a\",\"fromStore\":true,\"timings\":{\"total\":1}}");
+        durations.save();
+        assertEquals(900L, VerificationDurations.read(durationsFile).getDurations().get(":a:verifyPass_foo_bar_1.0"));
+        assertEquals(1, VerificationDurations.read(durationsFile).getDurations().size());
+
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.resolve("project").toFile()).build();
+        assertNull(ShardPlan.forBuild(project));
+        project.getExtensions().getExtraProperties().set(SHARD_PROPERTY, "2/2");
+        project.getExtensions().getExtraProperties().set(DURATIONS_FILE_PROPERTY, durationsFile.getPath());
+
+        ShardPlan plan = ShardPlan.forBuild(project);
+        assertEquals("2/2", plan.toString());
+        assertSame(plan, ShardPlan.forBuild(project));
+        // the only known verification goes to the first shard
+        assertTrue(new ShardPlan(1, 2, VerificationDurations.read(durationsFile).getDurations()).includes(":a:verifyPass_foo_bar_1.0"));
+    }
+
+    @Test
+    void shouldRejectInvalidShards() {
+        for (String shard : Arrays.asList("3", "0/2", "3/2", "a/b", "1/2/3")) {
+            Project project = ProjectBuilder.builder().withProjectDir(tempDir.resolve("project-" + shard.replace('/', '-')).toFile()).build();
+            project.getExtensions().getExtraProperties().set(SHARD_PROPERTY, shard);
+            assertThrows(GradleException.class, () -> ShardPlan.forBuild(project), shard);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Builds a stand-in for the agent jar whose {@code WeavePackageVerifier.verify} prints its arguments
+ * and reports that the instrumentation applied unless the instrumentation jar's name contains "fail".
+ */
+class StubAgent {
+    static void build(Path workDir, File agentJar, String comment) throws IOException {
+        Path sourceDir = Files.createDirectories(workDir.resolve("src/com/newrelic/weave/verification"));
+        Path source = sourceDir.resolve("WeavePackageVerifier.java");
+        Files.write(source, Collections.singletonList(
+                "package com.newrelic.weave.verification;\n" +
+                        "public class WeavePackageVerifier {\n" +
+                        "    public static boolean verify(java.io.PrintStream out, String jar, java.util.List<String> classpath) {\n" +
+                        "        out.println(jar + \" \" + classpath);\n" +
+                        "        return !jar.contains(\"fail\");\n" +
+                        "    }\n" +
+                        "}\n" + comment), StandardCharsets.UTF_8);
+
+        Path classesDir = Files.createDirectories(workDir.resolve("classes"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-d", classesDir.toString(), source.toString()));
+
+        String entryName = "com/newrelic/weave/verification/WeavePackageVerifier.class";
+        try (OutputStream output = Files.newOutputStream(agentJar.toPath());
+             JarOutputStream jar = new JarOutputStream(output)) {
+            jar.putNextEntry(new JarEntry(entryName));
+            jar.write(Files.readAllBytes(classesDir.resolve(entryName)));
+            jar.closeEntry();
+            jar.putNextEntry(new JarEntry("build.txt"));
+            jar.write(comment.getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+    }
+
+    private StubAgent() {}
+}
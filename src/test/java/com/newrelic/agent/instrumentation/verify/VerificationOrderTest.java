@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VerificationOrderTest {
+    @Test
+    void shouldVerifyBoundariesThenNewestThenRecentFailures() {
+        Map<String, VerifyParameters> versions = new LinkedHashMap<>();
+        add(versions, "classpath", null, true);
+        // fails before 1.2, passes from 1.2
+        add(versions, "foo:bar:1.0", "foo:bar:[0,)", false);
+        add(versions, "foo:bar:1.1", "foo:bar:[0,)", false);
+        add(versions, "foo:bar:1.2", "foo:bar:[1.2,)", true);
+        for (String version : Arrays.asList("1.3", "1.4", "1.5", "1.6", "1.7", "1.8", "1.9", "1.10")) {
+            add(versions, "foo:bar:" + version, "foo:bar:[1.2,)", true);
+        }
+
+        assertEquals(Arrays.asList(
+                        // boundaries, newest first
+                        "verifyPass_classpath", "verifyPass_foo_bar_1.10", "verifyPass_foo_bar_1.2", "verifyFail_foo_bar_1.1",
+                        "verifyFail_foo_bar_1.0",
+                        // the newest releases
+                        "verifyPass_foo_bar_1.9", "verifyPass_foo_bar_1.8",
+                        // failed last time
+                        "verifyPass_foo_bar_1.4",
+                        "verifyPass_foo_bar_1.7", "verifyPass_foo_bar_1.6", "verifyPass_foo_bar_1.5", "verifyPass_foo_bar_1.3"),
+                VerificationOrder.order(versions, "verifyPass_foo_bar_1.4"::equals));
+    }
+
+    @Test
+    void shouldOrderEachArtifactByItsOwnVersions() {
+        Map<String, VerifyParameters> versions = new LinkedHashMap<>();
+        add(versions, "foo:bar:1.0", "foo:bar:[1.0,)", true);
+        add(versions, "foo:bar:2.0", "foo:bar:[1.0,)", true);
+        add(versions, "foo:baz:10.0", "foo:baz:[10.0,)", true);
+
+        assertEquals(Arrays.asList("verifyPass_foo_bar_2.0", "verifyPass_foo_baz_10.0", "verifyPass_foo_bar_1.0"),
+                VerificationOrder.order(versions, taskName -> false));
+    }
+
+    private static void add(Map<String, VerifyParameters> versions, String dependency, String range, boolean shouldSuccessfullyApply) {
+        String taskName = (shouldSuccessfullyApply ? "verifyPass_" : "verifyFail_") + dependency.replace(':', '_');
+        versions.put(taskName, new VerifyParameters()
+                .setOriginalDependency(dependency)
+                .setSpecifiedRange(range)
+                .setShouldSuccessfullyApply(shouldSuccessfullyApply));
+    }
+}
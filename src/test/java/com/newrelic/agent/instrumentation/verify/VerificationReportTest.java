@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerificationReportTest {
+    @Test
+    void shouldWriteJsonLine() throws Exception {
+        VerificationReport report = new VerificationReport(parameters(true))
+                .setActual(VerificationReport.ACTUAL_APPLIED)
+                .setOutput("line \"one\"\n\ttwo")
+                .setClassLoadingMillis(30)
+                .setVerificationMillis(40)
+                .setOpenJars(5, 2);
+        report.write();
+        ResultSink.flush();
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("verification.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        String json = lines.get(0);
+        assertTrue(json.contains("\"dependency\":\"foo:bar:1.0\""));
+        assertTrue(json.contains("\"range\":\"foo:bar:[1.0,2.0)\""));
+        assertTrue(json.contains("\"expected\":\"applied\",\"actual\":\"applied\",\"passed\":true"));
+        assertTrue(json.contains("\"timings\":{\"resolution\":10,\"download\":20,\"classLoading\":30,\"verification\":40,\"total\":100}"));
+        assertTrue(json.contains("\"openJars\":{\"reused\":5,\"opened\":2}"));
+        assertTrue(json.contains("\"output\":\"line \\\"one\\\"\\n\\ttwo\""));
+    }
+
+    @Test
+    void shouldWriteFailingJUnitReport() throws Exception {
+        new VerificationReport(parameters(false))
+                .setActual(VerificationReport.ACTUAL_APPLIED)
+                .setOutput("<weaved> & more")
+                .write();
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(tempDir.resolve("TEST-verifyFail_foo_bar_1.0.xml").toFile());
+        assertEquals("1", document.getDocumentElement().getAttribute("failures"));
+        assertEquals("verifyFail_foo_bar_1.0", document.getElementsByTagName("testcase").item(0).getAttributes().getNamedItem("name").getNodeValue());
+        assertEquals("<weaved> & more", document.getElementsByTagName("failure").item(0).getTextContent());
+    }
+
+    @Test
+    void shouldCountVerifierErrorsAsJUnitErrors() throws Exception {
+        new VerificationReport(parameters(true))
+                .setActual(VerificationReport.ACTUAL_ERROR)
+                .setOutput("java.io.IOException: broken jar")
+                .write();
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(tempDir.resolve("TEST-verifyPass_foo_bar_1.0.xml").toFile());
+        assertEquals("0", document.getDocumentElement().getAttribute("failures"));
+        assertEquals("1", document.getDocumentElement().getAttribute("errors"));
+        assertEquals("java.io.IOException: broken jar", document.getElementsByTagName("error").item(0).getTextContent());
+    }
+
+    private VerifyParameters parameters(boolean shouldSuccessfullyApply) {
+        return new VerifyParameters()
+                .setTaskName((shouldSuccessfullyApply ? "verifyPass" : "verifyFail") + "_foo_bar_1.0")
+                .setOriginalDependency("foo:bar:1.0")
+                .setSpecifiedRange("foo:bar:[1.0,2.0)")
+                .setInstrumentationJar(new File("instrumentation.jar"))
+                .setShouldSuccessfullyApply(shouldSuccessfullyApply)
+                .setClasspathTimings(10, 20)
+                .setReportLog(tempDir.resolve("verification.jsonl").toFile())
+                .setJUnitReport(tempDir.resolve("TEST-" + (shouldSuccessfullyApply ? "verifyPass" : "verifyFail") + "_foo_bar_1.0.xml").toFile());
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerificationStateTest {
+    @Test
+    void shouldNotBeCurrentOnceTheClasspathChanges() throws IOException {
+        File agent = file("agent.jar", "agent");
+        File instrumentation = file("instrumentation.jar", "instrumentation");
+        File library = file("library.jar", "library");
+        File dependency = file("dependency-1.0.jar", "dependency 1.0");
+
+        VerificationState state = new VerificationState(tempDir.resolve("verified-versions.properties").toFile());
+        state.passed("verifyPass_foo_bar_1.0",
+                VerificationState.fingerprint(agent, instrumentation, Arrays.asList(library, dependency), true));
+
+        assertTrue(state.isCurrent("verifyPass_foo_bar_1.0",
+                VerificationState.fingerprint(agent, instrumentation, Arrays.asList(library, dependency), true)));
+        assertFalse(state.isCurrent("verifyPass_foo_bar_1.0",
+                VerificationState.fingerprint(agent, instrumentation, Arrays.asList(library, file("dependency-1.1.jar", "dependency 1.1")), true)));
+        assertFalse(state.isCurrent("verifyPass_foo_bar_1.0",
+                VerificationState.fingerprint(agent, instrumentation, Collections.singletonList(library), true)));
+        assertFalse(state.isCurrent("verifyPass_foo_bar_1.0",
+                VerificationState.fingerprint(agent, instrumentation, Arrays.asList(library, dependency), false)));
+    }
+
+    private File file(String name, String content) throws IOException {
+        Path path = tempDir.resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VerificationSummaryServiceTest {
+    @Test
+    void shouldStartTheReportLogOverEachBuild() throws IOException {
+        File reportLog = tempDir.resolve("verification.jsonl").toFile();
+        Files.write(reportLog.toPath(), Collections.singletonList("{\"task\":\"verifyPass_foo_bar_1.0\"}"), StandardCharsets.UTF_8);
+
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.resolve("project").toFile()).build();
+        VerificationSummaryService service = project.getGradle().getSharedServices()
+                .registerIfAbsent(VerificationSummaryService.NAME, VerificationSummaryService.class, spec -> {})
+                .get();
+        service.trackReportLog(reportLog);
+        Files.write(reportLog.toPath(), Collections.singletonList("{\"task\":\"verifyPass_foo_bar_2.0\"}"), StandardCharsets.UTF_8);
+        // tracked already, so it isn't started over again
+        service.trackReportLog(reportLog);
+
+        assertEquals(Collections.singletonList("{\"task\":\"verifyPass_foo_bar_1.0\"}"), Files.readAllLines(
+                new File(reportLog.getPath() + VerificationSummaryService.PREVIOUS_REPORT_LOG_SUFFIX).toPath(), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList("{\"task\":\"verifyPass_foo_bar_2.0\"}"),
+                Files.readAllLines(reportLog.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerificationSummaryTest {
+    @Test
+    void shouldUseNearestRankPercentiles() {
+        assertEquals(0, VerificationSummary.percentile(Collections.emptyList(), 50));
+        assertEquals(5, VerificationSummary.percentile(Arrays.asList(9L, 1L, 5L, 3L, 7L), 50));
+        assertEquals(100, VerificationSummary.percentile(Arrays.asList(100L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), 95));
+        assertEquals(100, VerificationSummary.percentile(Arrays.asList(100L, 1L, 2L), 100));
+    }
+
+    @Test
+    void shouldSummarizeReportLines() {
+        VerificationSummary summary = new VerificationSummary();
+        summary.addReportLine(report("1.0", true, false, 100));
+        summary.addReportLine(report("2.0", true, false, 300));
+        summary.addReportLine(report("3.0", false, true, 0));
+        summary.addReportLine("not a report");
+        summary.addConfigurationTime(4);
+
+        String text = summary.format();
+
+        assertTrue(text.startsWith("Verified 3 versions: 2 passed, 1 failed"), text);
+        assertTrue(text.matches("(?s).*\\Rverification +2 +400 +100 +300 +300\\R.*"), text);
+        assertTrue(text.indexOf("verifyPass_foo_bar_2.0") < text.indexOf("verifyPass_foo_bar_1.0"), text);
+        assertTrue(text.contains("Result store: 1 of 3 versions (33.3%)"), text);
+        assertTrue(text.contains("Open jars: 2 of 8 classpath jars already open in the worker (25.0%)"), text);
+        assertTrue(summary.toJson().contains("\"verification\":{\"count\":2,\"total\":400,\"p50\":100,\"p95\":300,\"max\":300}"));
+    }
+
+    @Test
+    void shouldReadReportsWithEscapedQuotes() {
+        VerificationSummary summary = new VerificationSummary();
+        summary.addReportLine(new VerificationReport(new VerifyParameters()
+                .setTaskName("verifyPass_foo_\"bar\"_1.0")
+                .setOriginalDependency("foo:bar:1.0")
+                .setShouldSuccessfullyApply(true))
+                .setActual(VerificationReport.ACTUAL_NOT_APPLIED)
+                .setVerificationMillis(7)
+                .setOutput("missing \"verification\":99")
+                .toJson());
+
+        String text = summary.format();
+
+        assertTrue(text.startsWith("Verified 1 versions: 0 passed, 1 failed"), text);
+        assertTrue(text.contains("verifyPass_foo_\"bar\"_1.0 "), text);
+        assertTrue(text.matches("(?s).*\\Rverification +1 +7 +7 +7 +7\\R.*"), text);
+        assertEquals("verifyPass_foo_\"bar\"_1.0", JsonParser.parseString(summary.toJson()).getAsJsonObject()
+                .getAsJsonArray("slowest").get(0).getAsJsonObject().get("task").getAsString());
+    }
+
+    private static String report(String version, boolean applied, boolean fromStore, long verificationMillis) {
+        return new VerificationReport(new VerifyParameters()
+                .setTaskName("verifyPass_foo_bar_" + version)
+                .setOriginalDependency("foo:bar:" + version)
+                .setInstrumentationJar(new File("instrumentation.jar"))
+                .setShouldSuccessfullyApply(true)
+                .setClasspathTimings(1, 2))
+                .setActual(applied ? VerificationReport.ACTUAL_APPLIED : VerificationReport.ACTUAL_NOT_APPLIED)
+                .setFromStore(fromStore)
+                .setVerificationMillis(verificationMillis)
+                .setOpenJars(fromStore ? 0 : 1, fromStore ? 0 : 3)
+                .toJson();
+    }
+}
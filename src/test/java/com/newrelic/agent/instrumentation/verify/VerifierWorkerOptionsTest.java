@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifierWorkerOptionsTest {
+    @Test
+    void shouldDefaultToNoIsolation() {
+        VerifierWorkerOptions options = VerifierWorkerOptions.fromProject(ProjectBuilder.builder().build());
+
+        assertFalse(options.isProcessIsolation());
+        assertNull(options.getMaxHeapSize());
+        assertEquals(Collections.emptyList(), options.getJvmArgs());
+        assertEquals(0, options.getMaxWorkers());
+    }
+
+    @Test
+    void shouldReadProcessIsolationFromProperties() {
+        Project project = ProjectBuilder.builder().build();
+        project.getExtensions().getExtraProperties().set(VerificationPlugin.ISOLATION_PROPERTY, "process");
+        project.getExtensions().getExtraProperties().set(VerificationPlugin.MAX_HEAP_SIZE_PROPERTY, "768m");
+        project.getExtensions().getExtraProperties().set(VerificationPlugin.JVM_ARGS_PROPERTY, " -XX:+UseParallelGC  -Xss2m ");
+        project.getExtensions().getExtraProperties().set(VerificationPlugin.MAX_WORKERS_PROPERTY, "3");
+
+        VerifierWorkerOptions options = VerifierWorkerOptions.fromProject(project);
+
+        assertTrue(options.isProcessIsolation());
+        assertEquals("768m", options.getMaxHeapSize());
+        assertEquals(Arrays.asList("-XX:+UseParallelGC", "-Xss2m"), options.getJvmArgs());
+        assertEquals(3, options.getMaxWorkers());
+    }
+
+    @Test
+    void shouldRejectUnknownIsolation() {
+        Project project = ProjectBuilder.builder().build();
+        project.getExtensions().getExtraProperties().set(VerificationPlugin.ISOLATION_PROPERTY, "classloader");
+
+        assertThrows(GradleException.class, () -> VerifierWorkerOptions.fromProject(project));
+    }
+}
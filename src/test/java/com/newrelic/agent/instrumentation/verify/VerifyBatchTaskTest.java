@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifyBatchTaskTest {
+    @Test
+    void shouldStartWithOneVersionAndDoubleUpToTheBatchSize() {
+        assertEquals(Arrays.asList(1, 2, 4, 8, 8, 7), VerifyBatchTask.batchSizes(30, 8, 0));
+    }
+
+    @Test
+    void shouldMakeNoMoreBatchesThanWorkers() {
+        List<Integer> sizes = VerifyBatchTask.batchSizes(100, 8, 4);
+
+        assertTrue(sizes.size() <= 4, sizes.toString());
+        assertEquals(100, sizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void shouldRampUpWhenTheWorkersLeaveRoom() {
+        assertEquals(Arrays.asList(1, 2, 4, 3), VerifyBatchTask.batchSizes(10, 8, 4));
+    }
+
+    @Test
+    void shouldHaveABatchSizeForNoVersions() {
+        assertEquals(Collections.singletonList(8), VerifyBatchTask.batchSizes(0, 8, 0));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 New Relic Corporation. All rights reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.newrelic.agent.instrumentation.verify;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifyBatchWorkActionTest {
+    @Test
+    void shouldRecordEveryVersionAndReportFailuresTogether() throws IOException {
+        VerifyBatchParameters parameters = new VerifyBatchParameters().setVersions(Arrays.asList(
+                version("foo:bar:1.0", true),
+                version("foo:bar:2.0", false),
+                version("foo:bar:3.0", true)));
+
+        GradleException exception = assertThrows(GradleException.class, () -> actionFor(parameters).execute());
+
+        assertTrue(exception.getMessage().startsWith("1 of 3 versions failed verification"));
+        assertTrue(exception.getMessage().contains("verifyFail_foo_bar_2.0"));
+        assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:3.0"), Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList("foo:bar:2.0"), Files.readAllLines(failuresFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldPassWhenEveryVersionPasses() throws IOException {
+        VerifyBatchParameters parameters = new VerifyBatchParameters().setVersions(Arrays.asList(
+                version("foo:bar:1.0", true),
+                version("foo:bar:2.0", true)));
+
+        actionFor(parameters).execute();
+
+        assertEquals(Arrays.asList("foo:bar:1.0", "foo:bar:2.0"), Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldStopAfterTheFirstFailureWhenFailingFast() throws IOException {
+        File failFastFile = tempDir.resolve("fail-fast.txt").toFile();
+        VerifyBatchParameters parameters = new VerifyBatchParameters().setVersions(Arrays.asList(
+                version("foo:bar:1.0", true).setFailFastFile(failFastFile),
+                version("foo:bar:2.0", false).setFailFastFile(failFastFile),
+                version("foo:bar:3.0", true).setFailFastFile(failFastFile)));
+
+        GradleException exception = assertThrows(GradleException.class, () -> actionFor(parameters).execute());
+
+        assertTrue(exception.getMessage().startsWith("1 of 3 versions failed verification, 1 were not verified"));
+        assertTrue(exception.getMessage().contains("Not verified foo:bar:3.0, stopped after verifyFail_foo_bar_2.0 foo:bar:2.0 failed"));
+        assertEquals(Collections.singletonList("foo:bar:1.0"), Files.readAllLines(passesFile.toPath(), StandardCharsets.UTF_8));
+        assertTrue(FailFast.isStopped(failFastFile));
+    }
+
+    @Test
+    void shouldUseStoredVerdictInsteadOfVerifying() throws IOException {
+        Files.write(instrumentationJar.toPath(), new byte[] { 1, 2, 3 });
+        ResultStoreOptions resultStore = ResultStoreOptions.local(tempDir.resolve("results").toFile(), 1024 * 1024);
+        // the stub agent would say this applies
+        String key = ResultStore.key(agentJar, instrumentationJar, Collections.emptyList());
+        resultStore.open().store(key, new VerificationResult(false, "stored output"));
+
+        VerifyBatchParameters parameters = new VerifyBatchParameters().setVersions(Collections.singletonList(
+                version("foo:bar:1.0", true).setResultStore(resultStore)));
+
+        GradleException exception = assertThrows(GradleException.class, () -> actionFor(parameters).execute());
+        assertTrue(exception.getMessage().contains("stored output"));
+    }
+
+    @Test
+    void shouldStoreVerdict() throws IOException {
+        Files.write(instrumentationJar.toPath(), new byte[] { 1, 2, 3 });
+        ResultStoreOptions resultStore = ResultStoreOptions.local(tempDir.resolve("results").toFile(), 1024 * 1024);
+
+        actionFor(new VerifyBatchParameters().setVersions(Collections.singletonList(
+                version("foo:bar:1.0", true).setResultStore(resultStore)))).execute();
+
+        VerificationResult stored = resultStore.open().load(ResultStore.key(agentJar, instrumentationJar, Collections.emptyList()));
+        assertTrue(stored.isApplied());
+    }
+
+    @Test
+    void shouldUseTheResultKeyTheTaskAlreadyComputed() throws IOException {
+        ResultStoreOptions resultStore = ResultStoreOptions.local(tempDir.resolve("results").toFile(), 1024 * 1024);
+        resultStore.open().store("key-from-the-task", new VerificationResult(true, "stored output"));
+        File resultFile = tempDir.resolve("result.txt").toFile();
+
+        actionFor(new VerifyBatchParameters().setVersions(Collections.singletonList(
+                version("foo:bar:1.0", true).setResultStore(resultStore).setResultKey("key-from-the-task").setResultFile(resultFile)))).execute();
+
+        assertEquals(Arrays.asList(VersionVerifier.RESULT_PASSED + " foo:bar:1.0", "key-from-the-task:pass"),
+                Files.readAllLines(resultFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private VerifyParameters version(String dependency, boolean shouldSuccessfullyApply) {
+        return new VerifyParameters()
+                .setTaskName((shouldSuccessfullyApply ? "verifyPass_" : "verifyFail_") + dependency.replace(':', '_'))
+                .setOriginalDependency(dependency)
+                .setAgentJar(agentJar)
+                .setInstrumentationJar(instrumentationJar)
+                .setShouldSuccessfullyApply(shouldSuccessfullyApply)
+                .setClasspathJars(Collections.emptySet())
+                .setVerifierPasses(dependency + "\n", passesFile)
+                .setVerifierFailures(dependency + "\n", failuresFile);
+    }
+
+    private static VerifyBatchWorkAction actionFor(VerifyBatchParameters parameters) {
+        return new VerifyBatchWorkAction() {
+            @Override
+            public VerifyBatchParameters getParameters() {
+                return parameters;
+            }
+        };
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        agentJar = tempDir.resolve("newrelic-agent.jar").toFile();
+        StubAgent.build(tempDir, agentJar, "");
+        instrumentationJar = tempDir.resolve("instrumentation.jar").toFile();
+        passesFile = tempDir.resolve("passes.txt").toFile();
+        failuresFile = tempDir.resolve("failures.txt").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        AgentVerifier.closeAll();
+    }
+
+    @SuppressWarnings("WeakerAccess") // @TempDir will fail if this is private.
+    @TempDir
+    Path tempDir;
+
+    private File agentJar;
+    private File instrumentationJar;
+    private File passesFile;
+    private File failuresFile;
+}